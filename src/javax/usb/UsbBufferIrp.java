@@ -0,0 +1,53 @@
+package javax.usb;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for a USB IRP (I/O Request Packet) whose data is a ByteBuffer.
+ * <p>
+ * This is identical to a UsbIrp, except the data is held in a
+ * {@link java.nio.ByteBuffer ByteBuffer}, which may be a
+ * {@link java.nio.ByteBuffer#isDirect() direct} buffer.
+ * The data to transfer is the buffer's remaining bytes; the buffer's position is the
+ * start of the data and its limit is the end of the data.
+ * <p>
+ * An implementation that can transfer directly to or from a ByteBuffer should use the
+ * {@link #getDataBuffer() buffer}, which avoids copying the data through a byte[].
+ * An implementation that cannot must still accept this as any other UsbIrp, using
+ * the {@link javax.usb.UsbIrp#getData() byte[] methods}; those are views of the buffer,
+ * which may involve a copy if the buffer has no accessible backing array.
+ * <p>
+ * When the implementation {@link javax.usb.UsbIrp#complete() completes} this, the buffer's
+ * limit is set to its position plus the {@link javax.usb.UsbIrp#getActualLength() actual length},
+ * so the buffer's remaining bytes are exactly the transferred data.
+ * @author Dan Streetman
+ */
+public interface UsbBufferIrp extends UsbIrp
+{
+	/**
+	 * Get the data buffer.
+	 * <p>
+	 * The data is the bytes between the buffer's position and limit.
+	 * This will never be null.
+	 * @return The data buffer.
+	 */
+	public ByteBuffer getDataBuffer();
+
+	/**
+	 * Set the data buffer.
+	 * <p>
+	 * The data is the bytes between the buffer's position and limit.
+	 * @param buffer The data buffer.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public void setDataBuffer(ByteBuffer buffer);
+}
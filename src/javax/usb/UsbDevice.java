@@ -11,6 +11,7 @@ package javax.usb;
 
 import java.io.UnsupportedEncodingException;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 
 import javax.usb.event.*;
 
@@ -193,6 +194,28 @@ public interface UsbDevice
 	 */
 	public void asyncSubmit( UsbControlIrp irp ) throws UsbException,IllegalArgumentException,UsbDisconnectedException;
 
+	/**
+	 * Submit a UsbControlIrp asynchronously to the Default Control Pipe, returning a CompletionStage.
+	 * <p>
+	 * This is exactly the same as {@link #asyncSubmit(UsbControlIrp) asyncSubmit},
+	 * except the returned CompletionStage completes when the UsbControlIrp
+	 * {@link javax.usb.UsbIrp#complete() completes}.  If the UsbControlIrp completes with a
+	 * {@link javax.usb.UsbIrp#getUsbException() UsbException}, the CompletionStage
+	 * completes exceptionally with that UsbException; otherwise it completes with the UsbControlIrp.
+	 * <p>
+	 * The default implementation uses
+	 * {@link javax.usb.util.UsbUtil#futureSubmit(UsbDevice,UsbControlIrp) UsbUtil.futureSubmit},
+	 * which only requires {@link #asyncSubmit(UsbControlIrp) asyncSubmit};
+	 * implementations with a more efficient mechanism may override it.
+	 * @param irp The UsbControlIrp.
+	 * @return A CompletionStage for the UsbControlIrp.
+	 * @exception UsbException If an error occurrs.
+	 * @exception IllegalArgumentException If the UsbControlIrp is not valid.
+	 * @exception UsbDisconnectedException If this device has been disconnected.
+	 */
+	public default CompletionStage<UsbIrp> futureSubmit( UsbControlIrp irp ) throws UsbException,IllegalArgumentException,UsbDisconnectedException
+	{ return javax.usb.util.UsbUtil.futureSubmit(this, irp); }
+
 	/**
 	 * Submit a List of UsbControlIrps synchronously to the Default Control Pipe.
 	 * <p>
@@ -9,7 +9,9 @@ package javax.usb;
  * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
  */
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 import javax.usb.event.*;
 
@@ -153,6 +155,62 @@ public interface UsbPipe
 	 */
 	public UsbIrp asyncSubmit( byte[] data ) throws UsbException,UsbNotActiveException,UsbNotOpenException,IllegalArgumentException,UsbDisconnectedException;
 
+	/**
+	 * Synchonously submit a ByteBuffer to the UsbPipe.
+	 * <p>
+	 * This is exactly the same as {@link #syncSubmit(byte[]) syncSubmit(byte[])}, except
+	 * the data is the ByteBuffer's remaining bytes, i.e. its position is the offset
+	 * and its remaining bytes are the length.  If the ByteBuffer is
+	 * {@link java.nio.ByteBuffer#isDirect() direct}, the implementation should transfer
+	 * to or from it without copying the data through a byte[].
+	 * <p>
+	 * On return, the ByteBuffer's limit is set to its position plus the number of bytes
+	 * actually transferred, so its remaining bytes are exactly the transferred data.
+	 * <p>
+	 * The default implementation uses
+	 * {@link javax.usb.util.UsbUtil#syncSubmit(UsbPipe,ByteBuffer) UsbUtil.syncSubmit},
+	 * which submits a UsbBufferIrp to {@link #syncSubmit(UsbIrp) syncSubmit(UsbIrp)};
+	 * implementations with a more efficient mechanism may override it.
+	 * @param data The buffer to use.
+	 * @return The number of bytes actually transferred.
+	 * @exception UsbException If an error occurs.
+	 * @exception UsbNotActiveException If the pipe is not {@link #isActive() active}.
+	 * @exception UsbNotOpenException If the pipe is not {@link #isOpen() open}.
+	 * @exception IllegalArgumentException If the data is null.
+	 * @exception UsbDisconnectedException If this pipe (device) has been disconnected.
+	 */
+	public default int syncSubmit( ByteBuffer data ) throws UsbException,UsbNotActiveException,UsbNotOpenException,IllegalArgumentException,UsbDisconnectedException
+	{ return javax.usb.util.UsbUtil.syncSubmit(this, data); }
+
+	/**
+	 * Asynchonously submit a ByteBuffer to the UsbPipe.
+	 * <p>
+	 * This is exactly the same as {@link #asyncSubmit(byte[]) asyncSubmit(byte[])}, except
+	 * the data is the ByteBuffer's remaining bytes, i.e. its position is the offset
+	 * and its remaining bytes are the length.  If the ByteBuffer is
+	 * {@link java.nio.ByteBuffer#isDirect() direct}, the implementation should transfer
+	 * to or from it without copying the data through a byte[].
+	 * <p>
+	 * The returned UsbIrp will represent the submission, and will be a
+	 * {@link javax.usb.UsbBufferIrp UsbBufferIrp} using the ByteBuffer.
+	 * When it completes, the ByteBuffer's limit is set to its position plus the number of bytes
+	 * actually transferred, so its remaining bytes are exactly the transferred data.
+	 * <p>
+	 * The default implementation uses
+	 * {@link javax.usb.util.UsbUtil#asyncSubmit(UsbPipe,ByteBuffer) UsbUtil.asyncSubmit},
+	 * which submits a UsbBufferIrp to {@link #asyncSubmit(UsbIrp) asyncSubmit(UsbIrp)};
+	 * implementations with a more efficient mechanism may override it.
+	 * @param data The buffer to use.
+	 * @return A UsbIrp representing the submission.
+	 * @exception UsbException If an error occurs.
+	 * @exception UsbNotActiveException If the pipe is not {@link #isActive() active}.
+	 * @exception UsbNotOpenException If the pipe is not {@link #isOpen() open}.
+	 * @exception IllegalArgumentException If the data is null.
+	 * @exception UsbDisconnectedException If this pipe (device) has been disconnected.
+	 */
+	public default UsbIrp asyncSubmit( ByteBuffer data ) throws UsbException,UsbNotActiveException,UsbNotOpenException,IllegalArgumentException,UsbDisconnectedException
+	{ return javax.usb.util.UsbUtil.asyncSubmit(this, data); }
+
 	/**
 	 * Synchonously submit a UsbIrp to the UsbPipe.
 	 * <p>
@@ -169,6 +227,11 @@ public interface UsbPipe
 	 * <p>
 	 * If this is a Control {@link javax.usb.UsbEndpoint#getType() type} pipe,
 	 * the UsbIrp must be a {@link javax.usb.UsbControlIrp UsbControlIrp}.
+	 * <p>
+	 * If the UsbIrp is a {@link javax.usb.UsbBufferIrp UsbBufferIrp}, the implementation
+	 * should use its {@link javax.usb.UsbBufferIrp#getDataBuffer() buffer} directly if possible.
+	 * If the UsbIrp is a {@link javax.usb.UsbScatterGatherIrp UsbScatterGatherIrp}, the implementation
+	 * should use its {@link javax.usb.UsbScatterGatherIrp#getDataBuffers() segments} directly if possible.
 	 * @param irp A UsbIrp to use for the submission.
 	 * @exception UsbException If an error occurs.
 	 * @exception UsbNotActiveException If the pipe is not {@link #isActive() active}.
@@ -195,6 +258,11 @@ public interface UsbPipe
 	 * <p>
 	 * If this is a Control {@link javax.usb.UsbEndpoint#getType() type} pipe,
 	 * the UsbIrp must be a {@link javax.usb.UsbControlIrp UsbControlIrp}.
+	 * <p>
+	 * If the UsbIrp is a {@link javax.usb.UsbBufferIrp UsbBufferIrp}, the implementation
+	 * should use its {@link javax.usb.UsbBufferIrp#getDataBuffer() buffer} directly if possible.
+	 * If the UsbIrp is a {@link javax.usb.UsbScatterGatherIrp UsbScatterGatherIrp}, the implementation
+	 * should use its {@link javax.usb.UsbScatterGatherIrp#getDataBuffers() segments} directly if possible.
 	 * @param irp The UsbIrp to use for the submission.
 	 * @exception UsbException If an error occurs.
 	 * @exception UsbNotActiveException If the pipe is not {@link #isActive() active}.
@@ -204,6 +272,38 @@ public interface UsbPipe
 	 */
 	public void asyncSubmit( UsbIrp irp ) throws UsbException,UsbNotActiveException,UsbNotOpenException,IllegalArgumentException,UsbDisconnectedException;
 
+	/**
+	 * Asynchonously submit a UsbIrp to the UsbPipe, returning a CompletionStage.
+	 * <p>
+	 * This is exactly the same as {@link #asyncSubmit(UsbIrp) asyncSubmit},
+	 * except the returned CompletionStage completes when the UsbIrp
+	 * {@link javax.usb.UsbIrp#complete() completes}.  If the UsbIrp completes with a
+	 * {@link javax.usb.UsbIrp#getUsbException() UsbException}, such as a
+	 * {@link javax.usb.UsbStallException UsbStallException} or
+	 * {@link javax.usb.UsbAbortException UsbAbortException}, the CompletionStage
+	 * completes exceptionally with that UsbException; otherwise it completes with the UsbIrp.
+	 * <p>
+	 * No Thread is required to wait for the submission; any number of submissions
+	 * may be outstanding and composed using the CompletionStage.
+	 * <p>
+	 * The default implementation uses
+	 * {@link javax.usb.util.UsbUtil#futureSubmit(UsbPipe,UsbIrp) UsbUtil.futureSubmit},
+	 * which only requires {@link #asyncSubmit(UsbIrp) asyncSubmit};
+	 * implementations with a more efficient mechanism may override it.
+	 * <p>
+	 * If this is a Control {@link javax.usb.UsbEndpoint#getType() type} pipe,
+	 * the UsbIrp must be a {@link javax.usb.UsbControlIrp UsbControlIrp}.
+	 * @param irp The UsbIrp to use for the submission.
+	 * @return A CompletionStage for the UsbIrp.
+	 * @exception UsbException If an error occurs.
+	 * @exception UsbNotActiveException If the pipe is not {@link #isActive() active}.
+	 * @exception UsbNotOpenException If the pipe is not {@link #isOpen() open}.
+	 * @exception IllegalArgumentException If the UsbIrp is not valid.
+	 * @exception UsbDisconnectedException If this pipe (device) has been disconnected.
+	 */
+	public default CompletionStage<UsbIrp> futureSubmit( UsbIrp irp ) throws UsbException,UsbNotActiveException,UsbNotOpenException,IllegalArgumentException,UsbDisconnectedException
+	{ return javax.usb.util.UsbUtil.futureSubmit(this, irp); }
+
 	/**
 	 * Synchonously submit a List of UsbIrps to the UsbPipe.
 	 * <p>
@@ -306,6 +406,10 @@ public interface UsbPipe
 
 	/**
 	 * Adds the listener.
+	 * <p>
+	 * If the listener is a {@link javax.usb.event.UsbPipeBatchListener UsbPipeBatchListener},
+	 * the implementation may deliver multiple completions in one
+	 * {@link javax.usb.event.UsbPipeDataBatchEvent UsbPipeDataBatchEvent}.
 	 * @param listener The UsbPipeListener.
 	 */
 	public void addUsbPipeListener( UsbPipeListener listener );
@@ -0,0 +1,60 @@
+package javax.usb;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Interface for a USB IRP (I/O Request Packet) whose data spans multiple ByteBuffers.
+ * <p>
+ * This is identical to a UsbIrp, except the data is held in an array of
+ * {@link java.nio.ByteBuffer ByteBuffer} segments.  The data to transfer is the concatenation of
+ * each segment's remaining bytes, in order.  For output this gathers the segments into one transfer;
+ * for input this scatters one transfer across the segments.
+ * <p>
+ * An implementation that can transfer directly to or from multiple buffers should use the
+ * {@link #getDataBuffers() segments}.  An implementation that cannot must still accept this as any
+ * other UsbIrp, using the {@link javax.usb.UsbIrp#getData() byte[] methods}; those present the
+ * segments as one contiguous byte[] with an {@link javax.usb.UsbIrp#getOffset() offset} of 0,
+ * which involves a copy.
+ * <p>
+ * When the implementation {@link javax.usb.UsbIrp#complete() completes} this, the
+ * {@link javax.usb.UsbIrp#getActualLength() actual length} is distributed across the segments in order;
+ * each segment's limit is set to its position plus {@link #getActualLength(int) its part of the actual length},
+ * so each segment's remaining bytes are exactly its transferred data.
+ * @author Dan Streetman
+ */
+public interface UsbScatterGatherIrp extends UsbIrp
+{
+	/**
+	 * Get the data segments.
+	 * <p>
+	 * This will never be null.
+	 * @return The data segments.
+	 */
+	public ByteBuffer[] getDataBuffers();
+
+	/**
+	 * Set the data segments.
+	 * @param buffers The data segments.
+	 * @exception IllegalArgumentException If the array or any segment is null.
+	 */
+	public void setDataBuffers(ByteBuffer[] buffers);
+
+	/**
+	 * The amount of data that was transferred to or from the specified segment.
+	 * <p>
+	 * This is valid only after completion.
+	 * @param segment The index of the segment.
+	 * @return The amount of data that was transferred to or from the segment.
+	 * @exception ArrayIndexOutOfBoundsException If the segment index is invalid.
+	 */
+	public int getActualLength(int segment);
+}
@@ -9,6 +9,8 @@ package javax.usb.event;
  * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
  */
 
+import java.nio.ByteBuffer;
+
 import javax.usb.*;
 
 /**
@@ -36,6 +38,9 @@ public class UsbDeviceDataEvent extends UsbDeviceEvent
 	 * <p>
 	 * This is a new byte[] whose length is the actual amount of transferred data.
 	 * The contents is a copy of the transferred data.
+	 * <p>
+	 * To read the data without a copy, use {@link #asReadOnlyBuffer() asReadOnlyBuffer};
+	 * to copy the data into an existing byte[], use {@link #getData(byte[],int) getData(byte[],int)}.
 	 * @return The transferred data.
 	 */
 	public byte[] getData()
@@ -45,6 +50,52 @@ public class UsbDeviceDataEvent extends UsbDeviceEvent
 		return data;
 	}
 
+	/**
+	 * Copy the data into the specified byte[].
+	 * <p>
+	 * This copies the {@link #getActualLength() actual transferred data} into the byte[],
+	 * starting at the specified offset, without creating a new byte[].
+	 * @param dst The destination byte[].
+	 * @param off The offset in the destination byte[].
+	 * @return The number of bytes copied, which is the actual length.
+	 * @exception IndexOutOfBoundsException If the data does not fit in the destination byte[] at the offset.
+	 */
+	public int getData(byte[] dst, int off)
+	{
+		int length = getActualLength();
+		System.arraycopy(getUsbControlIrp().getData(), getOffset(), dst, off, length);
+		return length;
+	}
+
+	/**
+	 * Get a read-only view of the data.
+	 * <p>
+	 * The returned ByteBuffer's remaining bytes are the {@link #getActualLength() actual transferred data};
+	 * it shares the UsbControlIrp's data, so no copy is made.
+	 * <p>
+	 * The view is only valid until the UsbControlIrp is reused.
+	 * @return A read-only ByteBuffer of the transferred data.
+	 */
+	public ByteBuffer asReadOnlyBuffer()
+	{
+		return ByteBuffer.wrap(getUsbControlIrp().getData(), getOffset(), getActualLength()).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Get the offset.
+	 * <p>
+	 * This is the starting offset of the transferred data in the
+	 * {@link javax.usb.UsbIrp#getData() UsbControlIrp's data}.
+	 * @return The offset of the transferred data.
+	 */
+	public int getOffset() { return getUsbControlIrp().getOffset(); }
+
+	/**
+	 * Get the actual length.
+	 * @return The actual amount of transferred data.
+	 */
+	public int getActualLength() { return getUsbControlIrp().getActualLength(); }
+
 	/**
 	 * Get the UsbControlIrp associated with this event.
 	 * @return The UsbControlIrp.
@@ -0,0 +1,36 @@
+package javax.usb.event;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+/**
+ * Interface for receiving batches of UsbPipeDataEvents.
+ * <p>
+ * A UsbPipeListener that implements this opts in to batched delivery:
+ * when the implementation completes several UsbIrps at once, successful UsbIrps are delivered
+ * in one {@link #dataBatchEventOccurred(UsbPipeDataBatchEvent) dataBatchEventOccurred} call
+ * instead of one {@link javax.usb.event.UsbPipeListener#dataEventOccurred(UsbPipeDataEvent) dataEventOccurred}
+ * call per UsbIrp.  Errors are still delivered by
+ * {@link javax.usb.event.UsbPipeListener#errorEventOccurred(UsbPipeErrorEvent) errorEventOccurred},
+ * and data that is not batched (e.g. a single completion) may still be delivered by
+ * {@link javax.usb.event.UsbPipeListener#dataEventOccurred(UsbPipeDataEvent) dataEventOccurred}.
+ * <p>
+ * Implementations may use {@link javax.usb.util.UsbUtil#fireDataEvents(javax.usb.UsbPipe,javax.usb.event.UsbPipeListener[],javax.usb.UsbIrp[],int) UsbUtil.fireDataEvents}
+ * to deliver completions.
+ * @author Dan Streetman
+ */
+public interface UsbPipeBatchListener extends UsbPipeListener
+{
+    /**
+	 * Data was successfully transferred by multiple UsbIrps.
+     * @param event The UsbPipeDataBatchEvent.
+     */
+    public void dataBatchEventOccurred( UsbPipeDataBatchEvent event );
+
+}
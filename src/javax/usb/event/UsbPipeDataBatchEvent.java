@@ -0,0 +1,69 @@
+package javax.usb.event;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import javax.usb.*;
+
+/**
+ * Indicates data was successfully transferred over the UsbPipe by multiple UsbIrps.
+ * <p>
+ * This event is fired to {@link javax.usb.event.UsbPipeBatchListener UsbPipeBatchListeners}
+ * instead of one {@link javax.usb.event.UsbPipeDataEvent UsbPipeDataEvent} per UsbIrp,
+ * when the implementation completes several UsbIrps at once (e.g. all UsbIrps reaped in one poll).
+ * The UsbIrps are in completion order.
+ * <p>
+ * The {@link javax.usb.event.UsbPipeEvent#getUsbIrp() single UsbIrp} of this event is null;
+ * use {@link #getUsbIrp(int) getUsbIrp(int)}.
+ * @author Dan Streetman
+ */
+public class UsbPipeDataBatchEvent extends UsbPipeEvent
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * The array is used directly, not copied, and must not be modified afterwards.
+	 * @param source The UsbPipe.
+	 * @param uIs The completed UsbIrps.
+	 */
+	public UsbPipeDataBatchEvent( UsbPipe source, UsbIrp[] uIs )
+	{
+		super(source);
+		usbIrps = uIs;
+	}
+
+	/**
+	 * Get the number of UsbIrps.
+	 * @return The number of UsbIrps in this batch.
+	 */
+	public int getUsbIrpCount() { return usbIrps.length; }
+
+	/**
+	 * Get a UsbIrp.
+	 * @param index The index of the UsbIrp.
+	 * @return The UsbIrp at the specified index.
+	 * @exception ArrayIndexOutOfBoundsException If the index is invalid.
+	 */
+	public UsbIrp getUsbIrp(int index) { return usbIrps[index]; }
+
+	/**
+	 * Get the total actual length.
+	 * @return The total amount of data transferred by all UsbIrps in this batch.
+	 */
+	public int getActualLength()
+	{
+		int length = 0;
+		for (int i=0; i<usbIrps.length; i++)
+			length += usbIrps[i].getActualLength();
+		return length;
+	}
+
+	private UsbIrp[] usbIrps = null;
+
+}
@@ -9,6 +9,8 @@ package javax.usb.event;
  * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
  */
 
+import java.nio.ByteBuffer;
+
 import javax.usb.*;
 
 /**
@@ -47,6 +49,9 @@ public class UsbPipeDataEvent extends UsbPipeEvent
 	 * <p>
 	 * If there is an associated UsbIrp, this returns a new byte[] containing only the actual transferred data.
 	 * If there is no associated UsbIrp, this returns the actual data buffer used.
+	 * <p>
+	 * To read the data without a copy, use {@link #asReadOnlyBuffer() asReadOnlyBuffer};
+	 * to copy the data into an existing byte[], use {@link #getData(byte[],int) getData(byte[],int)}.
 	 * @return The transferred data.
 	 */
 	public byte[] getData()
@@ -60,6 +65,62 @@ public class UsbPipeDataEvent extends UsbPipeEvent
 		}
 	}
 
+	/**
+	 * Copy the data into the specified byte[].
+	 * <p>
+	 * This copies the {@link #getActualLength() actual transferred data} into the byte[],
+	 * starting at the specified offset, without creating a new byte[].
+	 * @param dst The destination byte[].
+	 * @param off The offset in the destination byte[].
+	 * @return The number of bytes copied, which is the actual length.
+	 * @exception IndexOutOfBoundsException If the data does not fit in the destination byte[] at the offset.
+	 */
+	public int getData(byte[] dst, int off)
+	{
+		int length = getActualLength();
+
+		if (hasUsbIrp() && (getUsbIrp() instanceof UsbBufferIrp))
+			((UsbBufferIrp)getUsbIrp()).getDataBuffer().duplicate().get(dst, off, length);
+		else
+			System.arraycopy(getRawData(), getOffset(), dst, off, length);
+
+		return length;
+	}
+
+	/**
+	 * Get a read-only view of the data.
+	 * <p>
+	 * The returned ByteBuffer's remaining bytes are the {@link #getActualLength() actual transferred data};
+	 * it shares the transferred data, so no copy is made.  If the associated UsbIrp is
+	 * {@link javax.usb.UsbBufferIrp buffer-backed}, this is a view of its buffer.
+	 * <p>
+	 * The view is only valid until the associated UsbIrp or data buffer is reused.
+	 * @return A read-only ByteBuffer of the transferred data.
+	 */
+	public ByteBuffer asReadOnlyBuffer()
+	{
+		if (hasUsbIrp() && (getUsbIrp() instanceof UsbBufferIrp))
+			return ((UsbBufferIrp)getUsbIrp()).getDataBuffer().asReadOnlyBuffer();
+
+		return ByteBuffer.wrap(getRawData(), getOffset(), getActualLength()).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Get the offset.
+	 * <p>
+	 * This is the starting offset of the transferred data in the
+	 * {@link javax.usb.UsbIrp#getData() associated UsbIrp's data}.
+	 * If there is no associated UsbIrp, this is 0.
+	 * @return The offset of the transferred data.
+	 */
+	public int getOffset()
+	{
+		if (hasUsbIrp())
+			return getUsbIrp().getOffset();
+		else
+			return 0;
+	}
+
 	/**
 	 * Get the actual length.
 	 * @return The actual amount of transferred data.
@@ -72,6 +133,18 @@ public class UsbPipeDataEvent extends UsbPipeEvent
 			return actualLength;
 	}
 
+	/**
+	 * Get the byte[] holding the transferred data, without copying.
+	 * @return The UsbIrp's data, or the data buffer used.
+	 */
+	private byte[] getRawData()
+	{
+		if (hasUsbIrp())
+			return getUsbIrp().getData();
+		else
+			return data;
+	}
+
 	private byte[] data = null;
 	private int actualLength = 0;
 
@@ -0,0 +1,292 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.usb.*;
+import javax.usb.event.*;
+
+/**
+ * A UsbDevice wrapper that caches string descriptors.
+ * <p>
+ * The LANGID table (string descriptor zero) is fetched once, and each string descriptor
+ * and its decoded String are cached per index and LANGID; after the first fetch, getting
+ * a string does not make a control transfer.  The methods without a LANGID use the first
+ * LANGID in the table, and the manufacturer, product, and serial number Strings use
+ * {@link #getString(byte) getString} with the device descriptor's indexes.
+ * <p>
+ * The cache is {@link #invalidate() invalidated} when the UsbDevice is detached;
+ * a fetch that was in progress when the cache was invalidated is not cached.
+ * The detach listener is added to the UsbDevice on the first fetch, and removed when the UsbDevice
+ * is detached or this is {@link #close() closed}; until then, the UsbDevice keeps this reachable.
+ * All other methods are delegated to the wrapped UsbDevice.
+ * <p>
+ * The cache is Thread-safe; concurrent first fetches of the same string may each make a control transfer.
+ * @author Dan Streetman
+ */
+public class CachingUsbDevice implements UsbDevice
+{
+	/**
+	 * Constructor.
+	 * @param usbDevice The UsbDevice to wrap.
+	 */
+	public CachingUsbDevice(UsbDevice usbDevice)
+	{
+		this.usbDevice = usbDevice;
+	}
+
+	/**
+	 * Get the wrapped UsbDevice.
+	 * @return The wrapped UsbDevice.
+	 */
+	public UsbDevice getUsbDevice() { return usbDevice; }
+
+	/**
+	 * Get the supported LANGIDs.
+	 * <p>
+	 * This is the content of string descriptor zero.
+	 * @return A copy of the LANGID table.
+	 * @exception UsbException If the LANGID table could not be fetched.
+	 */
+	public short[] getLangIds() throws UsbException
+	{
+		short[] ids = langIds;
+
+		if (null == ids) {
+			listen();
+			int current = generation.get();
+			byte[] data = new byte[MAX_STRING_DESCRIPTOR_LENGTH];
+			int length = descriptorLength(data, StandardRequest.getDescriptor(usbDevice, UsbConst.DESCRIPTOR_TYPE_STRING, (byte)0, (short)0, data));
+			if (UsbConst.DESCRIPTOR_MIN_LENGTH_STRING > length)
+				throw new UsbException("LANGID table is too short.");
+
+			ids = new short[(length - 2) / 2];
+			for (int i=0; i<ids.length; i++)
+				ids[i] = UsbUtil.toShort(data[3 + (2 * i)], data[2 + (2 * i)]);
+
+			langIds = ids;
+			if (current != generation.get())
+				langIds = null;
+		}
+
+		return (short[])ids.clone();
+	}
+
+	/**
+	 * Get the default LANGID.
+	 * @return The first LANGID in the LANGID table, or 0 if the table is empty.
+	 * @exception UsbException If the LANGID table could not be fetched.
+	 */
+	public short getDefaultLangId() throws UsbException
+	{
+		short[] ids = langIds;
+
+		if (null == ids)
+			ids = getLangIds();
+
+		return 0 == ids.length ? 0 : ids[0];
+	}
+
+	/**
+	 * Get a string descriptor in a specific language.
+	 * @param index The string descriptor index.
+	 * @param langid The LANGID.
+	 * @return The UsbStringDescriptor.
+	 * @exception UsbException If the string descriptor could not be fetched.
+	 */
+	public UsbStringDescriptor getUsbStringDescriptor( byte index, short langid ) throws UsbException
+	{
+		Integer key = key(index, langid);
+		UsbStringDescriptor descriptor = stringDescriptors.get(key);
+
+		if (null == descriptor) {
+			listen();
+			int current = generation.get();
+			byte[] data = new byte[MAX_STRING_DESCRIPTOR_LENGTH];
+			int length = descriptorLength(data, StandardRequest.getDescriptor(usbDevice, UsbConst.DESCRIPTOR_TYPE_STRING, index, langid, data));
+			if (UsbConst.DESCRIPTOR_MIN_LENGTH_STRING > length)
+				throw new UsbException("String descriptor " + UsbUtil.unsignedInt(index) + " is too short.");
+
+			descriptor = cache(stringDescriptors, key, new CachedUsbStringDescriptor(data, length), current);
+		}
+
+		return descriptor;
+	}
+
+	/**
+	 * Get a String in a specific language.
+	 * @param index The string descriptor index.
+	 * @param langid The LANGID.
+	 * @return The String, or null if the index is 0.
+	 * @exception UsbException If the string descriptor could not be fetched.
+	 * @exception UnsupportedEncodingException If the string encoding is not supported.
+	 */
+	public String getString( byte index, short langid ) throws UsbException,UnsupportedEncodingException
+	{
+		if (0 == index)
+			return null;
+
+		Integer key = key(index, langid);
+		String string = strings.get(key);
+
+		if (null == string) {
+			int current = generation.get();
+			string = cache(strings, key, getUsbStringDescriptor(index, langid).getString(), current);
+		}
+
+		return string;
+	}
+
+	/**
+	 * Discard all cached descriptors and Strings.
+	 * <p>
+	 * This is called when the UsbDevice is detached.
+	 */
+	public void invalidate()
+	{
+		generation.incrementAndGet();
+		langIds = null;
+		stringDescriptors.clear();
+		strings.clear();
+	}
+
+	/**
+	 * Stop listening for the UsbDevice's detach, and discard the cache.
+	 * <p>
+	 * This should be called when this is no longer used, so the UsbDevice does not keep it reachable.
+	 * If this is used again, the detach listener is added again.
+	 */
+	public void close()
+	{
+		if (listening.compareAndSet(true, false))
+			usbDevice.removeUsbDeviceListener(detachListener);
+
+		invalidate();
+	}
+
+	public UsbPort getParentUsbPort() { return usbDevice.getParentUsbPort(); }
+	public boolean isUsbHub() { return usbDevice.isUsbHub(); }
+	public String getManufacturerString() throws UsbException,UnsupportedEncodingException
+	{ return getString(getUsbDeviceDescriptor().iManufacturer()); }
+	public String getSerialNumberString() throws UsbException,UnsupportedEncodingException
+	{ return getString(getUsbDeviceDescriptor().iSerialNumber()); }
+	public String getProductString() throws UsbException,UnsupportedEncodingException
+	{ return getString(getUsbDeviceDescriptor().iProduct()); }
+	public Object getSpeed() { return usbDevice.getSpeed(); }
+	public List getUsbConfigurations() { return usbDevice.getUsbConfigurations(); }
+	public UsbConfiguration getUsbConfiguration( byte number ) { return usbDevice.getUsbConfiguration(number); }
+	public boolean containsUsbConfiguration( byte number ) { return usbDevice.containsUsbConfiguration(number); }
+	public byte getActiveUsbConfigurationNumber() { return usbDevice.getActiveUsbConfigurationNumber(); }
+	public UsbConfiguration getActiveUsbConfiguration() { return usbDevice.getActiveUsbConfiguration(); }
+	public boolean isConfigured() { return usbDevice.isConfigured(); }
+	public UsbDeviceDescriptor getUsbDeviceDescriptor() { return usbDevice.getUsbDeviceDescriptor(); }
+	public UsbStringDescriptor getUsbStringDescriptor( byte index ) throws UsbException
+	{ return getUsbStringDescriptor(index, getDefaultLangId()); }
+	public String getString( byte index ) throws UsbException,UnsupportedEncodingException
+	{ return 0 == index ? null : getString(index, getDefaultLangId()); }
+	public void syncSubmit( UsbControlIrp irp ) throws UsbException { usbDevice.syncSubmit(irp); }
+	public void asyncSubmit( UsbControlIrp irp ) throws UsbException { usbDevice.asyncSubmit(irp); }
+	public CompletionStage<UsbIrp> futureSubmit( UsbControlIrp irp ) throws UsbException { return usbDevice.futureSubmit(irp); }
+	public void syncSubmit( List list ) throws UsbException { usbDevice.syncSubmit(list); }
+	public void asyncSubmit( List list ) throws UsbException { usbDevice.asyncSubmit(list); }
+	public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+	{ return usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
+	public void addUsbDeviceListener( UsbDeviceListener listener ) { usbDevice.addUsbDeviceListener(listener); }
+	public void removeUsbDeviceListener( UsbDeviceListener listener ) { usbDevice.removeUsbDeviceListener(listener); }
+
+	/**
+	 * Get the cache key for an index and LANGID.
+	 * @param index The string descriptor index.
+	 * @param langid The LANGID.
+	 * @return The cache key.
+	 */
+	protected static Integer key(byte index, short langid)
+	{ return Integer.valueOf(UsbUtil.toInt(UsbUtil.unsignedShort(index), langid)); }
+
+	/**
+	 * Get the length of a fetched descriptor.
+	 * @param data The descriptor.
+	 * @param length The number of bytes transferred.
+	 * @return The smaller of the number of bytes transferred and the descriptor's bLength.
+	 */
+	protected static int descriptorLength(byte[] data, int length)
+	{ return 0 == length ? 0 : Math.min(length, UsbUtil.unsignedInt(data[0])); }
+
+	/**
+	 * Cache a fetched value, unless another Thread cached it first or the cache was invalidated.
+	 * @param map The cache.
+	 * @param key The cache key.
+	 * @param value The fetched value.
+	 * @param fetchGeneration The generation read before the value was fetched.
+	 * @return The cached value, or the fetched value if none was cached.
+	 */
+	protected <V> V cache(ConcurrentMap<Integer,V> map, Integer key, V value, int fetchGeneration)
+	{
+		V old = map.putIfAbsent(key, value);
+
+		if (null != old)
+			return old;
+
+		if (fetchGeneration != generation.get())
+			map.remove(key, value);
+
+		return value;
+	}
+
+	/** Add the detach listener, if it has not been added. */
+	protected void listen()
+	{
+		if (listening.compareAndSet(false, true))
+			usbDevice.addUsbDeviceListener(detachListener);
+	}
+
+	/** The largest string descriptor, as bLength is one byte. */
+	public static final int MAX_STRING_DESCRIPTOR_LENGTH = 255;
+
+	protected UsbDevice usbDevice = null;
+	protected volatile short[] langIds = null;
+	protected ConcurrentMap<Integer,UsbStringDescriptor> stringDescriptors = new ConcurrentHashMap<Integer,UsbStringDescriptor>();
+	protected ConcurrentMap<Integer,String> strings = new ConcurrentHashMap<Integer,String>();
+	protected AtomicInteger generation = new AtomicInteger(0);
+	protected AtomicBoolean listening = new AtomicBoolean(false);
+
+	private UsbDeviceListener detachListener = new UsbDeviceListener() {
+			public void usbDeviceDetached( UsbDeviceEvent event ) { close(); }
+			public void errorEventOccurred( UsbDeviceErrorEvent event ) { }
+			public void dataEventOccurred( UsbDeviceDataEvent event ) { }
+		};
+
+	/**
+	 * A UsbStringDescriptor copied from the raw descriptor.
+	 */
+	private static class CachedUsbStringDescriptor implements UsbStringDescriptor
+	{
+		public CachedUsbStringDescriptor(byte[] data, int length)
+		{
+			bLength = (byte)length;
+			bDescriptorType = data[1];
+			bString = new byte[length - 2];
+			System.arraycopy(data, 2, bString, 0, bString.length);
+		}
+
+		public byte bLength() { return bLength; }
+		public byte bDescriptorType() { return bDescriptorType; }
+		public byte[] bString() { return (byte[])bString.clone(); }
+		public String getString() throws UnsupportedEncodingException { return new String(bString, "UTF-16LE"); }
+
+		private byte bLength = 0;
+		private byte bDescriptorType = 0;
+		private byte[] bString = null;
+	}
+}
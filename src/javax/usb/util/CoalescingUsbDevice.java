@@ -0,0 +1,315 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.usb.*;
+import javax.usb.event.*;
+
+/**
+ * A UsbDevice wrapper that coalesces identical control reads.
+ * <p>
+ * When an IN control request is submitted while an identical request
+ * (the same bmRequestType, bRequest, wValue, wIndex, wLength, and Short Packet policy)
+ * is still outstanding, no new control transfer is made; the later UsbControlIrp is attached to
+ * the outstanding one, and when that completes its data, actual length, and UsbException are copied
+ * to every attached UsbControlIrp, which are then completed.  Many Threads asking for the same data
+ * at the same time therefore cause only one control transfer.
+ * A request submitted after the outstanding one has completed makes a new control transfer.
+ * <p>
+ * By default only Standard requests (such as GET_STATUS and GET_DESCRIPTOR) are coalesced,
+ * since those are idempotent; Class and Vendor requests may have side effects, and are
+ * only coalesced if {@link #CoalescingUsbDevice(UsbDevice,boolean) requested}.
+ * OUT requests and Lists of UsbControlIrps are never coalesced.
+ * All other methods are delegated to the wrapped UsbDevice.
+ * @author Dan Streetman
+ */
+public class CoalescingUsbDevice implements UsbDevice
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * Only Standard requests are coalesced.
+	 * @param usbDevice The UsbDevice to wrap.
+	 */
+	public CoalescingUsbDevice(UsbDevice usbDevice) { this(usbDevice, false); }
+
+	/**
+	 * Constructor.
+	 * @param usbDevice The UsbDevice to wrap.
+	 * @param allTypes If Class and Vendor IN requests should also be coalesced.
+	 */
+	public CoalescingUsbDevice(UsbDevice usbDevice, boolean allTypes)
+	{
+		this.usbDevice = usbDevice;
+		this.allTypes = allTypes;
+	}
+
+	/**
+	 * Get the wrapped UsbDevice.
+	 * @return The wrapped UsbDevice.
+	 */
+	public UsbDevice getUsbDevice() { return usbDevice; }
+
+	public UsbPort getParentUsbPort() { return usbDevice.getParentUsbPort(); }
+	public boolean isUsbHub() { return usbDevice.isUsbHub(); }
+	public String getManufacturerString() throws UsbException,UnsupportedEncodingException { return usbDevice.getManufacturerString(); }
+	public String getSerialNumberString() throws UsbException,UnsupportedEncodingException { return usbDevice.getSerialNumberString(); }
+	public String getProductString() throws UsbException,UnsupportedEncodingException { return usbDevice.getProductString(); }
+	public Object getSpeed() { return usbDevice.getSpeed(); }
+	public List getUsbConfigurations() { return usbDevice.getUsbConfigurations(); }
+	public UsbConfiguration getUsbConfiguration( byte number ) { return usbDevice.getUsbConfiguration(number); }
+	public boolean containsUsbConfiguration( byte number ) { return usbDevice.containsUsbConfiguration(number); }
+	public byte getActiveUsbConfigurationNumber() { return usbDevice.getActiveUsbConfigurationNumber(); }
+	public UsbConfiguration getActiveUsbConfiguration() { return usbDevice.getActiveUsbConfiguration(); }
+	public boolean isConfigured() { return usbDevice.isConfigured(); }
+	public UsbDeviceDescriptor getUsbDeviceDescriptor() { return usbDevice.getUsbDeviceDescriptor(); }
+	public UsbStringDescriptor getUsbStringDescriptor( byte index ) throws UsbException { return usbDevice.getUsbStringDescriptor(index); }
+	public String getString( byte index ) throws UsbException,UnsupportedEncodingException { return usbDevice.getString(index); }
+
+	/**
+	 * Submit a UsbControlIrp synchronously.
+	 * <p>
+	 * If the UsbControlIrp can be coalesced, this waits for the shared control transfer.
+	 * @param irp The UsbControlIrp.
+	 * @exception UsbException If the submission or the control transfer failed.
+	 */
+	public void syncSubmit( UsbControlIrp irp ) throws UsbException
+	{
+		if (!isCoalescable(irp)) {
+			usbDevice.syncSubmit(irp);
+			return;
+		}
+
+		asyncSubmit(irp);
+		irp.waitUntilComplete();
+
+		if (irp.isUsbException())
+			throw irp.getUsbException();
+	}
+
+	/**
+	 * Submit a UsbControlIrp asynchronously.
+	 * <p>
+	 * If the UsbControlIrp can be coalesced, it is attached to an identical outstanding request,
+	 * or a new shared request is submitted for it.
+	 * @param irp The UsbControlIrp.
+	 * @exception UsbException If the submission failed.
+	 */
+	public void asyncSubmit( UsbControlIrp irp ) throws UsbException
+	{
+		if (!isCoalescable(irp)) {
+			usbDevice.asyncSubmit(irp);
+			return;
+		}
+
+		Key key = new Key(irp);
+
+		while (true) {
+			Flight flight = flights.get(key);
+
+			if (null != flight && flight.attach(irp))
+				return;
+
+			if (null != flight)
+				continue;
+
+			flight = new Flight(key, irp);
+			if (null != flights.putIfAbsent(key, flight))
+				continue;
+
+			try {
+				usbDevice.asyncSubmit(flight.usbControlIrp);
+			} catch ( UsbException uE ) {
+				flight.failed(uE);
+				throw uE;
+			}
+			return;
+		}
+	}
+
+	public CompletionStage<UsbIrp> futureSubmit( UsbControlIrp irp ) throws UsbException { return UsbUtil.futureSubmit(this, irp); }
+	public void syncSubmit( List list ) throws UsbException { usbDevice.syncSubmit(list); }
+	public void asyncSubmit( List list ) throws UsbException { usbDevice.asyncSubmit(list); }
+	public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+	{ return usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
+	public void addUsbDeviceListener( UsbDeviceListener listener ) { usbDevice.addUsbDeviceListener(listener); }
+	public void removeUsbDeviceListener( UsbDeviceListener listener ) { usbDevice.removeUsbDeviceListener(listener); }
+
+	/**
+	 * If a UsbControlIrp can be coalesced.
+	 * @param irp The UsbControlIrp.
+	 * @return If the UsbControlIrp is an IN request with data, of a type this coalesces.
+	 */
+	protected boolean isCoalescable(UsbControlIrp irp)
+	{
+		byte bmRequestType = irp.bmRequestType();
+
+		if (UsbConst.REQUESTTYPE_DIRECTION_IN != (bmRequestType & UsbConst.REQUESTTYPE_DIRECTION_MASK))
+			return false;
+		if (!allTypes && UsbConst.REQUESTTYPE_TYPE_STANDARD != (bmRequestType & UsbConst.REQUESTTYPE_TYPE_MASK))
+			return false;
+
+		return 0 < irp.getLength();
+	}
+
+	protected UsbDevice usbDevice = null;
+	protected boolean allTypes = false;
+
+	private ConcurrentHashMap<Key,Flight> flights = new ConcurrentHashMap<Key,Flight>();
+
+	/**
+	 * The identity of a control request.
+	 */
+	private static class Key
+	{
+		public Key(UsbControlIrp irp)
+		{
+			bmRequestType = irp.bmRequestType();
+			bRequest = irp.bRequest();
+			wValue = irp.wValue();
+			wIndex = irp.wIndex();
+			wLength = irp.getLength();
+			acceptShortPacket = irp.getAcceptShortPacket();
+		}
+
+		public int hashCode() { return (((((bmRequestType * 31) + bRequest) * 31 + wValue) * 31 + wIndex) * 31 + wLength) * 2 + (acceptShortPacket ? 1 : 0); }
+
+		public boolean equals(Object object)
+		{
+			if (!(object instanceof Key))
+				return false;
+
+			Key key = (Key)object;
+			return bmRequestType == key.bmRequestType && bRequest == key.bRequest && wValue == key.wValue &&
+				wIndex == key.wIndex && wLength == key.wLength && acceptShortPacket == key.acceptShortPacket;
+		}
+
+		private byte bmRequestType = 0;
+		private byte bRequest = 0;
+		private short wValue = 0;
+		private short wIndex = 0;
+		private int wLength = 0;
+		private boolean acceptShortPacket = false;
+	}
+
+	/**
+	 * One outstanding shared control transfer, and the UsbControlIrps attached to it.
+	 */
+	private class Flight implements UsbIrpListener
+	{
+		public Flight(Key key, UsbControlIrp irp)
+		{
+			this.key = key;
+			usbControlIrp = new DefaultUsbControlIrp(new byte[irp.getLength()], 0, irp.getLength(), irp.getAcceptShortPacket(),
+				irp.bmRequestType(), irp.bRequest(), irp.wValue(), irp.wIndex());
+			usbControlIrp.setUsbIrpListener(this);
+			attached.add(irp);
+		}
+
+		/**
+		 * Attach a UsbControlIrp.
+		 * @param irp The UsbControlIrp.
+		 * @return If attached, false if this has already completed.
+		 */
+		public synchronized boolean attach(UsbControlIrp irp)
+		{
+			if (done)
+				return false;
+
+			attached.add(irp);
+			return true;
+		}
+
+		public void usbIrpCompleted(UsbIrp usbIrp) { distribute(); }
+
+		/**
+		 * The shared control transfer could not be submitted.
+		 * <p>
+		 * The submitting UsbControlIrp's exception is thrown; the others attached to it are completed with the UsbException.
+		 * @param uE The UsbException.
+		 */
+		public void failed(UsbException uE)
+		{
+			usbControlIrp.setUsbException(uE);
+			completeAll(finish(), 1);
+		}
+
+		/**
+		 * Copy the result to every attached UsbControlIrp, and complete them.
+		 */
+		private void distribute() { completeAll(finish(), 0); }
+
+		/**
+		 * Complete attached UsbControlIrps.
+		 * <p>
+		 * Every UsbControlIrp is completed even if completing another throws;
+		 * the first RuntimeException is then rethrown.
+		 * @param irps The attached UsbControlIrps.
+		 * @param start The index of the first UsbControlIrp to complete.
+		 */
+		private void completeAll(List<UsbControlIrp> irps, int start)
+		{
+			RuntimeException exception = null;
+
+			for (int i=start; i<irps.size(); i++) {
+				try {
+					complete(irps.get(i));
+				} catch ( RuntimeException rE ) {
+					if (null == exception)
+						exception = rE;
+				}
+			}
+
+			if (null != exception)
+				throw exception;
+		}
+
+		/**
+		 * Stop attaching UsbControlIrps.
+		 * @return The attached UsbControlIrps.
+		 */
+		private List<UsbControlIrp> finish()
+		{
+			flights.remove(key, this);
+
+			synchronized (this) {
+				done = true;
+				return attached;
+			}
+		}
+
+		/**
+		 * Copy the result to a UsbControlIrp, and complete it.
+		 * @param irp The UsbControlIrp.
+		 */
+		private void complete(UsbControlIrp irp)
+		{
+			if (usbControlIrp.isUsbException()) {
+				irp.setUsbException(usbControlIrp.getUsbException());
+			} else {
+				int length = Math.min(usbControlIrp.getActualLength(), irp.getLength());
+				System.arraycopy(usbControlIrp.getData(), 0, irp.getData(), irp.getOffset(), length);
+				irp.setActualLength(length);
+			}
+
+			irp.complete();
+		}
+
+		public DefaultUsbControlIrp usbControlIrp = null;
+
+		private Key key = null;
+		private List<UsbControlIrp> attached = new ArrayList<UsbControlIrp>();
+		private boolean done = false;
+	}
+}
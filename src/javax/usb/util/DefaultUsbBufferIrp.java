@@ -0,0 +1,202 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+
+import javax.usb.*;
+
+/**
+ * UsbBufferIrp default implementation.
+ * <p>
+ * The behavior and defaults follow those defined in the {@link javax.usb.UsbBufferIrp interface}.
+ * <p>
+ * The byte[] methods are views of the {@link #getDataBuffer() buffer}; the
+ * {@link #getOffset() offset} is the buffer's position and the {@link #getLength() length}
+ * is the buffer's remaining bytes.  If the buffer has an accessible backing array, that
+ * array is the {@link #getData() data} (and the offset includes the array offset).
+ * Otherwise, e.g. for a direct buffer, the data is a bounce byte[] which is filled from the buffer
+ * when {@link #getData() first requested} for a submission, and whose transferred bytes are copied back into the
+ * buffer on {@link #complete() completion}.  The bounce byte[] is kept for reuse.
+ * @author Dan Streetman
+ */
+public class DefaultUsbBufferIrp extends DefaultUsbIrp implements UsbBufferIrp
+{
+	/** Constructor. */
+	public DefaultUsbBufferIrp() { super(); }
+
+	/**
+	 * Constructor.
+	 * @param buffer The data buffer.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public DefaultUsbBufferIrp(ByteBuffer buffer) { setDataBuffer(buffer); }
+
+	/**
+	 * Constructor.
+	 * @param buffer The data buffer.
+	 * @param shortPacket The Short Packet policy.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public DefaultUsbBufferIrp(ByteBuffer buffer, boolean shortPacket)
+	{
+		setDataBuffer(buffer);
+		setAcceptShortPacket(shortPacket);
+	}
+
+	/**
+	 * Get the data buffer.
+	 * @return The data buffer.
+	 */
+	public ByteBuffer getDataBuffer() { return dataBuffer; }
+
+	/**
+	 * Set the data buffer.
+	 * @param buffer The data buffer.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public void setDataBuffer(ByteBuffer buffer) throws IllegalArgumentException
+	{
+		if (null == buffer)
+			throw new IllegalArgumentException("Data buffer cannot be null.");
+
+		dataBuffer = buffer;
+		bounced = false;
+	}
+
+	/**
+	 * Get the data.
+	 * <p>
+	 * If the buffer has an accessible backing array, this is that array.
+	 * Otherwise this is a bounce byte[] holding a copy of the buffer's data.
+	 * @return The data.
+	 */
+	public byte[] getData()
+	{
+		if (dataBuffer.hasArray())
+			return dataBuffer.array();
+
+		if (!bounced) {
+			if (null == bounceData || bounceData.length < dataBuffer.limit())
+				bounceData = new byte[dataBuffer.limit()];
+
+			ByteBuffer duplicate = dataBuffer.duplicate();
+			duplicate.get(bounceData, duplicate.position(), duplicate.remaining());
+			bounced = true;
+		}
+
+		return bounceData;
+	}
+
+	/**
+	 * Get the offset.
+	 * @return The offset.
+	 */
+	public int getOffset() { return arrayOffset() + dataBuffer.position(); }
+
+	/**
+	 * Get the length.
+	 * @return The length.
+	 */
+	public int getLength() { return dataBuffer.remaining(); }
+
+	/**
+	 * Set the data, offset, and length.
+	 * <p>
+	 * This wraps the byte[] in a new ByteBuffer.
+	 * @param d The data.
+	 * @param o The offset.
+	 * @param l The length.
+	 * @exception IllegalArgumentException If the data is null, or the offset and/or length is negative or too large.
+	 */
+	public void setData( byte[] d, int o, int l ) throws IllegalArgumentException
+	{
+		if (null == d)
+			throw new IllegalArgumentException("Data cannot be null.");
+		if (0 > o || 0 > l || d.length < (o + l))
+			throw new IllegalArgumentException("Offset and length must be non-negative and within the data.");
+
+		setDataBuffer(ByteBuffer.wrap(d, o, l));
+	}
+
+	/**
+	 * Set the offset.
+	 * <p>
+	 * This sets the buffer's position.
+	 * @param o The offset.
+	 * @exception IllegalArgumentException If the offset is negative or beyond the buffer's limit.
+	 */
+	public void setOffset(int o) throws IllegalArgumentException
+	{
+		if (0 > o)
+			throw new IllegalArgumentException("Offset cannot be negative.");
+
+		dataBuffer.position(o - arrayOffset());
+	}
+
+	/**
+	 * Set the length.
+	 * <p>
+	 * This sets the buffer's limit.
+	 * @param l The length.
+	 * @exception IllegalArgumentException If the length is negative or beyond the buffer's capacity.
+	 */
+	public void setLength(int l) throws IllegalArgumentException
+	{
+		if (0 > l)
+			throw new IllegalArgumentException("Length cannot be negative");
+
+		dataBuffer.limit(dataBuffer.position() + l);
+	}
+
+	/**
+	 * Complete this submission.
+	 * <p>
+	 * This copies any transferred data from the bounce byte[] into the buffer
+	 * (unless the buffer is read-only), sets the buffer's limit to its position
+	 * plus the {@link #getActualLength() actual length}, and then
+	 * {@link javax.usb.util.DefaultUsbIrp#complete() completes} as a DefaultUsbIrp.
+	 */
+	public void complete()
+	{
+		int position = dataBuffer.position();
+		int actual = Math.min(getActualLength(), dataBuffer.remaining());
+
+		if (bounced) {
+			if (!dataBuffer.isReadOnly()) {
+				ByteBuffer duplicate = dataBuffer.duplicate();
+				duplicate.put(bounceData, position, actual);
+			}
+			bounced = false;
+		}
+
+		dataBuffer.limit(position + actual);
+
+		super.complete();
+	}
+
+	/** Clear all fields to their reset values. */
+	protected void clear()
+	{
+		super.clear();
+		dataBuffer.clear();
+		bounced = false;
+	}
+
+	/**
+	 * Get the offset of the buffer's index 0 within the byte[] data.
+	 * @return The array offset.
+	 */
+	protected int arrayOffset() { return dataBuffer.hasArray() ? dataBuffer.arrayOffset() : 0; }
+
+	protected ByteBuffer dataBuffer = ByteBuffer.allocate(0);
+	protected byte[] bounceData = null;
+	protected boolean bounced = false;
+}
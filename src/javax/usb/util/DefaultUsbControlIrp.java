@@ -17,6 +17,11 @@ import javax.usb.*;
  * UsbControlIrp default implementation.
  * <p>
  * This extends DefaultUsbIrp with the Control-specific methods.
+ * <p>
+ * The setup packet fields may be changed, so one DefaultUsbControlIrp can be
+ * {@link javax.usb.util.DefaultUsbIrp#reset() reset} and reused as a template for
+ * many requests.  The 8-byte setup packet is encoded from the current fields, with the
+ * wLength taken from the current length, when it is {@link #getSetupPacket(byte[],int) copied}.
  * @author Dan Streetman
  */
 public class DefaultUsbControlIrp extends DefaultUsbIrp implements UsbControlIrp
@@ -87,6 +92,85 @@ public class DefaultUsbControlIrp extends DefaultUsbIrp implements UsbControlIrp
 	 */
 	public short wLength() { return (short)getLength(); }
 
+	/**
+	 * Set the bmRequestType.
+	 * @param bmRequestType The bmRequestType.
+	 */
+	public void setBmRequestType(byte bmRequestType) { this.bmRequestType = bmRequestType; }
+
+	/**
+	 * Set the bRequest.
+	 * @param bRequest The bRequest.
+	 */
+	public void setBRequest(byte bRequest) { this.bRequest = bRequest; }
+
+	/**
+	 * Set the wValue.
+	 * @param wValue The wValue.
+	 */
+	public void setWValue(short wValue) { this.wValue = wValue; }
+
+	/**
+	 * Set the wIndex.
+	 * @param wIndex The wIndex.
+	 */
+	public void setWIndex(short wIndex) { this.wIndex = wIndex; }
+
+	/**
+	 * Set all the setup packet fields except the wLength.
+	 * <p>
+	 * The wLength is always the {@link #getLength() length}.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 */
+	public void setSetupPacket(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+	{
+		setBmRequestType(bmRequestType);
+		setBRequest(bRequest);
+		setWValue(wValue);
+		setWIndex(wIndex);
+	}
+
+	/**
+	 * Copy the encoded setup packet.
+	 * <p>
+	 * This copies the 8 bytes of the setup packet, in USB (little-endian) order, including the current wLength.
+	 * @param dst The byte[] to copy into.
+	 * @param offset The offset in the byte[].
+	 * @exception IndexOutOfBoundsException If there are less than 8 bytes at the offset.
+	 */
+	public void getSetupPacket(byte[] dst, int offset) throws IndexOutOfBoundsException
+	{
+		if (0 > offset || dst.length < (offset + SETUP_PACKET_LENGTH))
+			throw new IndexOutOfBoundsException("Setup packet needs " + SETUP_PACKET_LENGTH + " bytes at offset " + offset);
+
+		short wLength = wLength();
+		dst[offset] = bmRequestType;
+		dst[offset + 1] = bRequest;
+		dst[offset + 2] = (byte)wValue;
+		dst[offset + 3] = (byte)(wValue >> 8);
+		dst[offset + 4] = (byte)wIndex;
+		dst[offset + 5] = (byte)(wIndex >> 8);
+		dst[offset + 6] = (byte)wLength;
+		dst[offset + 7] = (byte)(wLength >> 8);
+	}
+
+	/**
+	 * Get the encoded setup packet.
+	 * @return A new byte[] containing the 8 bytes of the setup packet.
+	 */
+	public byte[] getSetupPacket()
+	{
+		byte[] packet = new byte[SETUP_PACKET_LENGTH];
+		getSetupPacket(packet, 0);
+		return packet;
+	}
+
+	/** The length of the setup packet. */
+	public static final int SETUP_PACKET_LENGTH = 8;
+
 	protected byte bmRequestType = 0x00;
 	protected byte bRequest = 0x00;
 	protected short wValue = 0x0000;
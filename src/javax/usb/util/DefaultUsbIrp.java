@@ -10,6 +10,9 @@ package javax.usb.util;
  */
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 import javax.usb.*;
 
@@ -189,27 +192,63 @@ public class DefaultUsbIrp implements UsbIrp
 	 * <ul>
 	 * <li>{@link #setComplete(boolean) Set} this {@link #isComplete() complete}.</li>
 	 * <li>Notify all {@link #waitUntilComplete() waiting Threads}.</li>
+	 * <li>Call the {@link #getUsbIrpListener() UsbIrpListener}, if any.</li>
 	 * </ul>
+	 * <p>
+	 * No monitor is used; waiting Threads are parked, and are unparked here.
 	 */
 	public void complete()
 	{
 		setComplete(true);
-		synchronized(waitLock) { waitLock.notifyAll(); }
+		notifyWaiters();
+
+		UsbIrpListener listener = getUsbIrpListener();
+		if (null != listener)
+			listener.usbIrpCompleted(this);
 	}
 
+	/**
+	 * Get the UsbIrpListener.
+	 * @return The UsbIrpListener, or null.
+	 */
+	public UsbIrpListener getUsbIrpListener() { return usbIrpListener; }
+
+	/**
+	 * Set the UsbIrpListener.
+	 * <p>
+	 * The listener is called each time this is {@link #complete() completed}.
+	 * Use null to remove the listener.
+	 * @param listener The UsbIrpListener, or null.
+	 */
+	public void setUsbIrpListener( UsbIrpListener listener ) { usbIrpListener = listener; }
+
 	/**
 	 * Wait until {@link #isComplete() complete}.
 	 * <p>
 	 * This will block until this is {@link #isComplete() complete}.
+	 * If the waiting Thread is interrupted, it continues waiting,
+	 * and its interrupt status is restored before this returns.
 	 */
 	public void waitUntilComplete()
 	{
-		synchronized ( waitLock ) {
-			while (!isComplete()) {
-				try { waitLock.wait(); }
-				catch ( InterruptedException iE ) { }
-			}
+		if (isComplete())
+			return;
+
+		WaitNode node = new WaitNode(Thread.currentThread());
+		pushWaiter(node);
+
+		boolean interrupted = false;
+
+		while (!isComplete()) {
+			LockSupport.park(this);
+			if (Thread.interrupted())
+				interrupted = true;
 		}
+
+		node.thread = null;
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
 	}
 
 	/**
@@ -218,6 +257,7 @@ public class DefaultUsbIrp implements UsbIrp
 	 * This will block until this is {@link #isComplete() complete},
 	 * or the timeout has expired.  If the timeout is 0 or less,
 	 * this behaves as the {@link #waitUntilComplete() no-timeout method}.
+	 * The timeout is a deadline; spurious wakeups do not cause an early return.
 	 * @param timeout The maximum number of milliseconds to wait.
 	 */
 	public void waitUntilComplete( long timeout )
@@ -227,22 +267,186 @@ public class DefaultUsbIrp implements UsbIrp
 			return;
 		}
 
-		long startTime = System.currentTimeMillis();
+		if (isComplete())
+			return;
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+		WaitNode node = new WaitNode(Thread.currentThread());
+		pushWaiter(node);
+
+		boolean interrupted = false;
+
+		while (!isComplete()) {
+			long remaining = deadline - System.nanoTime();
+			if (0 >= remaining)
+				break;
+			LockSupport.parkNanos(this, remaining);
+			if (Thread.interrupted())
+				interrupted = true;
+		}
+
+		if (isComplete())
+			node.thread = null;
+		else
+			removeWaiter(node);
+
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Get the generation.
+	 * <p>
+	 * The generation changes every time this is {@link #reset() reset}.
+	 * A holder of this can save the generation when it obtains this,
+	 * and later compare it to the current generation to detect if this
+	 * has been reset (e.g. recycled by a {@link javax.usb.util.UsbIrpPool UsbIrpPool})
+	 * in the meantime.
+	 * @return The generation.
+	 */
+	public int getGeneration() { return generation; }
 
-		synchronized ( waitLock ) {
-			if (!isComplete() && ((System.currentTimeMillis() - startTime) < timeout)) {
-				try { waitLock.wait( timeout ); }
-				catch ( InterruptedException iE ) { }
+	/**
+	 * Reset this for reuse.
+	 * <p>
+	 * This advances the {@link #getGeneration() generation} and then:
+	 * <ul>
+	 * <li>Sets the {@link #getOffset() offset} to 0 and the {@link #getLength() length} to data.length;
+	 * the data buffer itself is kept.</li>
+	 * <li>Sets the {@link #getActualLength() actual length} to 0.</li>
+	 * <li>Sets the {@link #getUsbException() UsbException} to null.</li>
+	 * <li>Sets the {@link #getAcceptShortPacket() Short Packet policy} to true.</li>
+	 * <li>Removes the {@link #getUsbIrpListener() UsbIrpListener}.</li>
+	 * <li>Sets this not {@link #isComplete() complete}.</li>
+	 * </ul>
+	 * This must not be called while this is submitted.
+	 * @return The new generation.
+	 */
+	public int reset()
+	{
+		int g = generationUpdater.incrementAndGet(this);
+		clear();
+		return g;
+	}
+
+	/**
+	 * Reset this for reuse, if the generation matches.
+	 * <p>
+	 * This is the same as {@link #reset() reset}, except this only
+	 * resets if the current {@link #getGeneration() generation} is the
+	 * specified generation.  The generation is compared and advanced atomically,
+	 * so only one of any number of concurrent callers with the same generation will succeed.
+	 * @param expectedGeneration The expected generation.
+	 * @return If this was reset.
+	 */
+	public boolean reset( int expectedGeneration )
+	{
+		if (!generationUpdater.compareAndSet(this, expectedGeneration, expectedGeneration + 1))
+			return false;
+
+		clear();
+		return true;
+	}
+
+	/** Clear all fields to their reset values. */
+	protected void clear()
+	{
+		offset = 0;
+		length = data.length;
+		actualLength = 0;
+		usbException = null;
+		acceptShortPacket = true;
+		usbIrpListener = null;
+		complete = false;
+	}
+
+	/**
+	 * Add a waiting Thread.
+	 * @param node The WaitNode for the waiting Thread.
+	 */
+	private void pushWaiter(WaitNode node)
+	{
+		do {
+			node.next = waiters;
+		} while (!waitersUpdater.compareAndSet(this, node.next, node));
+	}
+
+	/**
+	 * Remove a waiting Thread that stopped waiting before completion.
+	 * <p>
+	 * This unlinks the WaitNode, and any other WaitNodes whose Thread has stopped waiting,
+	 * so repeatedly timing out does not grow the waiting stack.
+	 * @param node The WaitNode for the Thread that stopped waiting.
+	 */
+	private void removeWaiter(WaitNode node)
+	{
+		node.thread = null;
+
+		retry:
+		while (true) {
+			WaitNode pred = null;
+			WaitNode q = waiters;
+
+			while (null != q) {
+				WaitNode s = q.next;
+
+				if (null != q.thread) {
+					pred = q;
+				} else if (null != pred) {
+					pred.next = s;
+					if (null == pred.thread)
+						continue retry;
+				} else if (!waitersUpdater.compareAndSet(this, q, s)) {
+					continue retry;
+				}
+
+				q = s;
 			}
+
+			return;
+		}
+	}
+
+	/** Unpark all waiting Threads. */
+	private void notifyWaiters()
+	{
+		WaitNode node = waitersUpdater.getAndSet(this, null);
+
+		while (null != node) {
+			Thread thread = node.thread;
+			if (null != thread) {
+				node.thread = null;
+				LockSupport.unpark(thread);
+			}
+			node = node.next;
 		}
 	}
 
 	protected byte[] data = new byte[0];
-	protected boolean complete = false;
+	protected volatile boolean complete = false;
 	protected boolean acceptShortPacket = true;
 	protected int offset = 0;
 	protected int length = 0;
 	protected int actualLength = 0;
 	protected UsbException usbException = null;
-	private Object waitLock = new Object();
+	protected volatile UsbIrpListener usbIrpListener = null;
+	private volatile int generation = 0;
+	private volatile WaitNode waiters = null;
+
+	private static final AtomicIntegerFieldUpdater<DefaultUsbIrp> generationUpdater =
+		AtomicIntegerFieldUpdater.newUpdater(DefaultUsbIrp.class, "generation");
+	private static final AtomicReferenceFieldUpdater<DefaultUsbIrp,WaitNode> waitersUpdater =
+		AtomicReferenceFieldUpdater.newUpdater(DefaultUsbIrp.class, WaitNode.class, "waiters");
+
+	/**
+	 * A Thread waiting for completion.
+	 */
+	private static class WaitNode
+	{
+		public WaitNode(Thread thread) { this.thread = thread; }
+
+		public volatile Thread thread = null;
+		public volatile WaitNode next = null;
+	}
 }
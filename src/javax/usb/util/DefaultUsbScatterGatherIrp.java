@@ -0,0 +1,249 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+
+import javax.usb.*;
+
+/**
+ * UsbScatterGatherIrp default implementation.
+ * <p>
+ * The behavior and defaults follow those defined in the {@link javax.usb.UsbScatterGatherIrp interface}.
+ * <p>
+ * The byte[] methods present a bounce byte[], which is filled by gathering the segments when
+ * {@link #getData() first requested} for a submission, and whose transferred bytes are scattered back into
+ * the segments on {@link #complete() completion}.  The {@link #getOffset() offset} is always 0 and the
+ * {@link #getLength() length} is the total of the segments' remaining bytes; to change them, change the
+ * segments.  The bounce byte[] is kept for reuse.
+ * @author Dan Streetman
+ */
+public class DefaultUsbScatterGatherIrp extends DefaultUsbIrp implements UsbScatterGatherIrp
+{
+	/** Constructor. */
+	public DefaultUsbScatterGatherIrp() { super(); }
+
+	/**
+	 * Constructor.
+	 * @param buffers The data segments.
+	 * @exception IllegalArgumentException If the array or any segment is null.
+	 */
+	public DefaultUsbScatterGatherIrp(ByteBuffer[] buffers) { setDataBuffers(buffers); }
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * Each byte[] is wrapped in a ByteBuffer segment.
+	 * @param data The data segments.
+	 * @exception IllegalArgumentException If the array or any segment is null.
+	 */
+	public DefaultUsbScatterGatherIrp(byte[][] data) { setDataBuffers(wrap(data)); }
+
+	/**
+	 * Get the data segments.
+	 * @return The data segments.
+	 */
+	public ByteBuffer[] getDataBuffers() { return dataBuffers; }
+
+	/**
+	 * Set the data segments.
+	 * <p>
+	 * Each segment's limit is remembered, and restored when this is {@link #reset() reset}.
+	 * @param buffers The data segments.
+	 * @exception IllegalArgumentException If the array or any segment is null.
+	 */
+	public void setDataBuffers(ByteBuffer[] buffers) throws IllegalArgumentException
+	{
+		if (null == buffers)
+			throw new IllegalArgumentException("Data segments cannot be null.");
+		for (int i=0; i<buffers.length; i++)
+			if (null == buffers[i])
+				throw new IllegalArgumentException("Data segment " + i + " cannot be null.");
+
+		dataBuffers = buffers;
+		if (segmentActualLengths.length != buffers.length) {
+			segmentActualLengths = new int[buffers.length];
+			segmentLimits = new int[buffers.length];
+		}
+		for (int i=0; i<buffers.length; i++)
+			segmentLimits[i] = buffers[i].limit();
+		bounced = false;
+	}
+
+	/**
+	 * Get the actual length of a segment.
+	 * @param segment The index of the segment.
+	 * @return The amount of data transferred to or from the segment.
+	 */
+	public int getActualLength(int segment) { return segmentActualLengths[segment]; }
+
+	/**
+	 * Get the data.
+	 * <p>
+	 * This is a bounce byte[] holding the gathered segments.
+	 * @return The data.
+	 */
+	public byte[] getData()
+	{
+		if (!bounced) {
+			int length = getLength();
+
+			if (null == bounceData || bounceData.length < length)
+				bounceData = new byte[length];
+
+			int position = 0;
+			for (int i=0; i<dataBuffers.length; i++) {
+				ByteBuffer duplicate = dataBuffers[i].duplicate();
+				int remaining = duplicate.remaining();
+				duplicate.get(bounceData, position, remaining);
+				position += remaining;
+			}
+
+			bounced = true;
+		}
+
+		return bounceData;
+	}
+
+	/**
+	 * Get the offset.
+	 * @return The offset, which is always 0.
+	 */
+	public int getOffset() { return 0; }
+
+	/**
+	 * Get the length.
+	 * @return The total of the segments' remaining bytes.
+	 */
+	public int getLength()
+	{
+		int length = 0;
+		for (int i=0; i<dataBuffers.length; i++)
+			length += dataBuffers[i].remaining();
+		return length;
+	}
+
+	/**
+	 * Set the data, offset, and length.
+	 * <p>
+	 * This sets a single segment wrapping the byte[].
+	 * @param d The data.
+	 * @param o The offset.
+	 * @param l The length.
+	 * @exception IllegalArgumentException If the data is null, or the offset and/or length is negative or too large.
+	 */
+	public void setData( byte[] d, int o, int l ) throws IllegalArgumentException
+	{
+		if (null == d)
+			throw new IllegalArgumentException("Data cannot be null.");
+		if (0 > o || 0 > l || d.length < (o + l))
+			throw new IllegalArgumentException("Offset and length must be non-negative and within the data.");
+
+		setDataBuffers(new ByteBuffer[] { ByteBuffer.wrap(d, o, l) });
+	}
+
+	/**
+	 * Set the offset.
+	 * @param o The offset.
+	 * @exception IllegalArgumentException If the offset is not 0.
+	 */
+	public void setOffset(int o) throws IllegalArgumentException
+	{
+		if (0 != o)
+			throw new IllegalArgumentException("Offset must be 0; set the segment positions instead.");
+	}
+
+	/**
+	 * Set the length.
+	 * @param l The length.
+	 * @exception IllegalArgumentException If the length is not the total of the segments' remaining bytes.
+	 */
+	public void setLength(int l) throws IllegalArgumentException
+	{
+		if (getLength() != l)
+			throw new IllegalArgumentException("Length must be " + getLength() + "; set the segment limits instead.");
+	}
+
+	/**
+	 * Complete this submission.
+	 * <p>
+	 * This distributes the {@link #getActualLength() actual length} across the segments,
+	 * scatters any transferred data from the bounce byte[] into the segments (except read-only segments),
+	 * sets each segment's limit to its position plus its part of the actual length, and then
+	 * {@link javax.usb.util.DefaultUsbIrp#complete() completes} as a DefaultUsbIrp.
+	 */
+	public void complete()
+	{
+		int actual = getActualLength();
+		int position = 0;
+
+		for (int i=0; i<dataBuffers.length; i++) {
+			ByteBuffer buffer = dataBuffers[i];
+			int segmentActual = Math.min(actual, buffer.remaining());
+
+			if (bounced && !buffer.isReadOnly()) {
+				ByteBuffer duplicate = buffer.duplicate();
+				duplicate.put(bounceData, position, segmentActual);
+			}
+
+			buffer.limit(buffer.position() + segmentActual);
+			segmentActualLengths[i] = segmentActual;
+			position += segmentActual;
+			actual -= segmentActual;
+		}
+
+		bounced = false;
+
+		super.complete();
+	}
+
+	/**
+	 * Clear all fields to their reset values.
+	 * <p>
+	 * Each segment's limit, which {@link #complete() completion} reduced to the transferred data,
+	 * is restored to its limit when the segments were set; the positions belong to the caller,
+	 * and are not changed.
+	 */
+	protected void clear()
+	{
+		super.clear();
+		for (int i=0; i<segmentActualLengths.length; i++) {
+			dataBuffers[i].limit(segmentLimits[i]);
+			segmentActualLengths[i] = 0;
+		}
+		bounced = false;
+	}
+
+	/**
+	 * Wrap each byte[] in a ByteBuffer.
+	 * @param data The byte[]s.
+	 * @return The ByteBuffers.
+	 * @exception IllegalArgumentException If the array or any byte[] is null.
+	 */
+	protected static ByteBuffer[] wrap(byte[][] data) throws IllegalArgumentException
+	{
+		if (null == data)
+			throw new IllegalArgumentException("Data segments cannot be null.");
+
+		ByteBuffer[] buffers = new ByteBuffer[data.length];
+		for (int i=0; i<data.length; i++) {
+			if (null == data[i])
+				throw new IllegalArgumentException("Data segment " + i + " cannot be null.");
+			buffers[i] = ByteBuffer.wrap(data[i]);
+		}
+		return buffers;
+	}
+
+	protected ByteBuffer[] dataBuffers = new ByteBuffer[0];
+	protected int[] segmentActualLengths = new int[0];
+	protected int[] segmentLimits = new int[0];
+	protected byte[] bounceData = null;
+	protected boolean bounced = false;
+}
@@ -9,6 +9,12 @@ package javax.usb.util;
  * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
  */
 
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.Function;
+
 import javax.usb.*;
 
 /**
@@ -21,6 +27,15 @@ import javax.usb.*;
  * be passed more than a byte; e.g. all the interface number and endpoint address
  * parameters have a type of short, but interface numbers and endpoint addresses
  * are byte-sized.
+ * <p>
+ * The instance methods reuse one UsbControlIrp, and its buffer for small responses, for every request,
+ * so repeated requests do not allocate.  The UsbControlIrp is created by the UsbDevice, and is only reused
+ * if it is a {@link javax.usb.util.DefaultUsbControlIrp DefaultUsbControlIrp}.
+ * If it is in use by another Thread, a new UsbControlIrp is used instead.
+ * <p>
+ * Each request also has a class method that creates its UsbControlIrp, and an asynchronous class method
+ * that returns a CompletionStage for the result.  Several requests can be submitted in one call with
+ * {@link #futureSubmit(UsbDevice,List) futureSubmit}.
  * @author Dan Streetman
  */
 public class StandardRequest
@@ -42,33 +57,41 @@ public class StandardRequest
 	/**
 	 * Clear Feature.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param recipient The recipient.
 	 * @param featureSelector The Feature Selector.
 	 * @param target The target interface number or endpoint address.
 	 * @exception UsbException If unsuccessful.
 	 * @exception IllegalArgumentException If the recipient or target is invalid.
 	 */
-		public void clearFeature(byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
-	{ clearFeature(usbDevice, recipient, featureSelector, target); }
+	public void clearFeature(byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
+	{ syncSubmit(recipientRequestType(REQUESTTYPE_CLEAR_FEATURE, recipient, target), UsbConst.REQUEST_CLEAR_FEATURE, featureSelector, target); }
 
 	/**
 	 * Get Configuration.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @return The configuration number.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public byte getConfiguration() throws UsbException
-	{ return getConfiguration(usbDevice); }
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(REQUESTTYPE_GET_CONFIGURATION, UsbConst.REQUEST_GET_CONFIGURATION, (short)0, (short)0);
+		try {
+			syncSubmit(reusable, 1);
+			return reusable.buffer[0];
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
 
 	/**
 	 * Get Descriptor.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param type The Descriptor Type.
 	 * @param index The Descriptor Index.
 	 * @param langid The String Descriptor Language ID.
@@ -77,25 +100,56 @@ public class StandardRequest
 	 * @exception UsbException If unsuccessful.
 	 */
 	public int getDescriptor(byte type, byte index, short langid, byte[] data) throws UsbException
-	{ return getDescriptor(usbDevice, type, index, langid, data); }
+	{ return syncSubmit(REQUESTTYPE_GET_DESCRIPTOR, UsbConst.REQUEST_GET_DESCRIPTOR, descriptorValue(type, index), langid, data); }
 
 	/**
-	 * Get Interface.
+	 * Get the device descriptor.
 	 * <p>
 	 * This only calls the corresponding class method using the UsbDevice
 	 * specified in the constructor.
+	 * @return The parsed device descriptor.
+	 * @exception UsbException If unsuccessful.
+	 */
+	public UsbDescriptorParser getDeviceDescriptor() throws UsbException
+	{ return getDeviceDescriptor(usbDevice); }
+
+	/**
+	 * Get a complete configuration descriptor.
+	 * <p>
+	 * This only calls the corresponding class method using the UsbDevice
+	 * specified in the constructor.
+	 * @param index The configuration descriptor index.
+	 * @return The parsed configuration descriptor, with all its interface, endpoint, and class-specific descriptors.
+	 * @exception UsbException If unsuccessful.
+	 */
+	public UsbDescriptorParser getConfigurationDescriptorTree(byte index) throws UsbException
+	{ return getConfigurationDescriptorTree(usbDevice, index); }
+
+	/**
+	 * Get Interface.
+	 * <p>
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param interfaceNumber The interface number.
 	 * @return The active alternate setting for the specified interface.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public byte getInterface(short interfaceNumber) throws UsbException
-	{ return getInterface(usbDevice, interfaceNumber); }
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(REQUESTTYPE_GET_INTERFACE, UsbConst.REQUEST_GET_INTERFACE, (short)0, interfaceNumber);
+		try {
+			syncSubmit(reusable, 1);
+			return reusable.buffer[0];
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
 
 	/**
 	 * Get Status.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param recipient The recipient.
 	 * @param target The target interface number or endpoint address.
 	 * @return The status of the specified recipient.
@@ -103,35 +157,43 @@ public class StandardRequest
 	 * @exception IllegalArgumentException If the recipient or target is invalid.
 	 */
 	public short getStatus(byte recipient, short target) throws UsbException,IllegalArgumentException
-	{ return getStatus(usbDevice, recipient, target); }
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(recipientRequestType(REQUESTTYPE_GET_STATUS, recipient, target), UsbConst.REQUEST_GET_STATUS, (short)0, target);
+		try {
+			syncSubmit(reusable, 2);
+			return UsbUtil.toShort(reusable.buffer[1], reusable.buffer[0]);
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
 
 	/**
 	 * Set Address.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param deviceAddress The new device address.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public void setAddress(short deviceAddress) throws UsbException
-	{ setAddress(usbDevice, deviceAddress); }
+	{ syncSubmit(REQUESTTYPE_SET_ADDRESS, UsbConst.REQUEST_SET_ADDRESS, deviceAddress, (short)0); }
 
 	/**
 	 * Set Configuration.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param configurationValue The new configuration value.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public void setConfiguration(short configurationValue) throws UsbException
-	{ setConfiguration(usbDevice, configurationValue); }
+	{ syncSubmit(REQUESTTYPE_SET_CONFIGURATION, UsbConst.REQUEST_SET_CONFIGURATION, configurationValue, (short)0); }
 
 	/**
 	 * Set Descriptor.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param type The Descriptor Type.
 	 * @param index The Descriptor Index.
 	 * @param langid The String Descriptor Language ID.
@@ -140,13 +202,13 @@ public class StandardRequest
 	 * @exception UsbException If unsuccessful.
 	 */
 	public int setDescriptor(byte type, byte index, short langid, byte[] data) throws UsbException
-	{ return setDescriptor(usbDevice, type, index, langid, data); }
+	{ return syncSubmit(REQUESTTYPE_SET_DESCRIPTOR, UsbConst.REQUEST_SET_DESCRIPTOR, descriptorValue(type, index), langid, data); }
 
 	/**
 	 * Set Feature.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param recipient The recipient.
 	 * @param featureSelector The Feature Selector.
 	 * @param target The target interface number or endpoint address.
@@ -154,34 +216,150 @@ public class StandardRequest
 	 * @exception IllegalArgumentException If the recipient or target is invalid.
 	 */
 	public void setFeature(byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
-	{ setFeature(usbDevice, recipient, featureSelector, target); }
+	{ syncSubmit(recipientRequestType(REQUESTTYPE_SET_FEATURE, recipient), UsbConst.REQUEST_SET_FEATURE, featureSelector, target); }
 
 	/**
 	 * Set Interface.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param interfaceNumber The interface number.
 	 * @param alternateSetting The alternate setting number.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public void setInterface(short interfaceNumber, short alternateSetting) throws UsbException
-	{ setInterface(usbDevice, interfaceNumber, alternateSetting); }
+	{ syncSubmit(REQUESTTYPE_SET_INTERFACE, UsbConst.REQUEST_SET_INTERFACE, alternateSetting, interfaceNumber); }
 
 	/**
 	 * Synch Frame.
 	 * <p>
-	 * This only calls the corresponding class method using the UsbDevice
-	 * specified in the constructor.
+	 * This makes the same request as the corresponding class method using the UsbDevice
+	 * specified in the constructor, reusing this StandardRequest's UsbControlIrp.
 	 * @param endpointAddress The endpoint address.
 	 * @return The frame number.
 	 * @exception UsbException If unsuccessful.
 	 */
 	public short synchFrame(short endpointAddress) throws UsbException
-	{ return synchFrame(usbDevice, endpointAddress); }
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(REQUESTTYPE_SYNCH_FRAME, UsbConst.REQUEST_SYNCH_FRAME, (short)0, endpointAddress);
+		try {
+			syncSubmit(reusable, 2);
+			return UsbUtil.toShort(reusable.buffer[1], reusable.buffer[0]);
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
+
+	/**
+	 * Claim this StandardRequest's reusable UsbControlIrp.
+	 * <p>
+	 * The UsbControlIrp is {@link javax.usb.util.DefaultUsbIrp#reset() reset} and its setup packet set.
+	 * If it is already claimed by another Thread, or has not been created yet, a new one is
+	 * {@link javax.usb.UsbDevice#createUsbControlIrp(byte,byte,short,short) created by the UsbDevice}.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 * @return The ReusableUsbControlIrp.
+	 */
+	protected ReusableUsbControlIrp claimUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+	{
+		ReusableUsbControlIrp reusable = reusableUsbControlIrp.getAndSet(null);
+
+		if (null == reusable) {
+			reusable = new ReusableUsbControlIrp(usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex));
+		} else {
+			DefaultUsbControlIrp defaultUsbControlIrp = (DefaultUsbControlIrp)reusable.usbControlIrp;
+			defaultUsbControlIrp.reset();
+			defaultUsbControlIrp.setSetupPacket(bmRequestType, bRequest, wValue, wIndex);
+		}
+
+		reusable.usbControlIrp.setData(reusable.buffer, 0, 0);
+		return reusable;
+	}
+
+	/**
+	 * Release a claimed UsbControlIrp, so it can be reused.
+	 * <p>
+	 * The UsbControlIrp's data is cleared, so it does not keep the caller's byte[].
+	 * It is only kept for reuse if it is a DefaultUsbControlIrp.
+	 * @param reusable The ReusableUsbControlIrp.
+	 */
+	protected void releaseUsbControlIrp(ReusableUsbControlIrp reusable)
+	{
+		reusable.usbControlIrp.setData(reusable.buffer, 0, 0);
+		if (reusable.usbControlIrp instanceof DefaultUsbControlIrp)
+			reusableUsbControlIrp.compareAndSet(null, reusable);
+	}
+
+	/**
+	 * Submit a request without data using the reusable UsbControlIrp.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 * @exception UsbException If unsuccessful.
+	 */
+	protected void syncSubmit(byte bmRequestType, byte bRequest, short wValue, short wIndex) throws UsbException
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(bmRequestType, bRequest, wValue, wIndex);
+		try {
+			usbDevice.syncSubmit(reusable.usbControlIrp);
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
+
+	/**
+	 * Submit a request with the caller's data using the reusable UsbControlIrp.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 * @param data The data.
+	 * @return The actual length of transferred data.
+	 * @exception UsbException If unsuccessful.
+	 */
+	protected int syncSubmit(byte bmRequestType, byte bRequest, short wValue, short wIndex, byte[] data) throws UsbException
+	{
+		ReusableUsbControlIrp reusable = claimUsbControlIrp(bmRequestType, bRequest, wValue, wIndex);
+		try {
+			reusable.usbControlIrp.setData(data);
+			usbDevice.syncSubmit(reusable.usbControlIrp);
+			return reusable.usbControlIrp.getActualLength();
+		} finally {
+			releaseUsbControlIrp(reusable);
+		}
+	}
+
+	/**
+	 * Submit a claimed UsbControlIrp that reads exactly the specified number of bytes into its buffer.
+	 * @param reusable The ReusableUsbControlIrp.
+	 * @param length The number of bytes.
+	 * @exception UsbException If unsuccessful.
+	 */
+	protected void syncSubmit(ReusableUsbControlIrp reusable, int length) throws UsbException
+	{
+		reusable.usbControlIrp.setData(reusable.buffer, 0, length);
+		reusable.usbControlIrp.setAcceptShortPacket(false);
+		usbDevice.syncSubmit(reusable.usbControlIrp);
+	}
 
 	protected UsbDevice usbDevice = null;
 
+	private AtomicReference<ReusableUsbControlIrp> reusableUsbControlIrp = new AtomicReference<ReusableUsbControlIrp>();
+
+	/**
+	 * A UsbControlIrp with a buffer for the small Standard Request responses.
+	 */
+	protected static class ReusableUsbControlIrp
+	{
+		public ReusableUsbControlIrp(UsbControlIrp usbControlIrp) { this.usbControlIrp = usbControlIrp; }
+
+		public UsbControlIrp usbControlIrp = null;
+		public byte[] buffer = new byte[2];
+	}
+
 	//**************************************************************************
 	// Class methods/fields
 
@@ -204,11 +382,7 @@ public class StandardRequest
 	 */
 	public static void clearFeature(UsbDevice usbDevice, byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
 	{
-		checkRecipient(recipient);
-		if (UsbConst.REQUESTTYPE_RECIPIENT_DEVICE == recipient && 0 != target)
-			throw new IllegalArgumentException("If the recipient is device, the target must be 0");
-
-		byte bmRequestType = (byte)(REQUESTTYPE_CLEAR_FEATURE | recipient);
+		byte bmRequestType = recipientRequestType(REQUESTTYPE_CLEAR_FEATURE, recipient, target);
 		byte bRequest = UsbConst.REQUEST_CLEAR_FEATURE;
 		short wValue = featureSelector;
 		short wIndex = target;
@@ -280,7 +454,7 @@ public class StandardRequest
 	{
 		byte bmRequestType = REQUESTTYPE_GET_DESCRIPTOR;
 		byte bRequest = UsbConst.REQUEST_GET_DESCRIPTOR;
-		short wValue = (short)((type << 8) | ((int)index)&0xff);
+		short wValue = descriptorValue(type, index);
 		short wIndex = langid;
 
 		UsbControlIrp usbControlIrp = usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex);
@@ -291,6 +465,82 @@ public class StandardRequest
 		return usbControlIrp.getActualLength();
 	}
 
+	/**
+	 * Get the device descriptor.
+	 * <p>
+	 * This reads the device descriptor and returns it parsed; the data is a private copy,
+	 * so the result is immutable.  The result is remembered for the UsbDevice, so later calls
+	 * do not make a control transfer, until {@link #clearDescriptorCache(UsbDevice) cleared}.
+	 * @param usbDevice The UsbDevice.
+	 * @return The parsed device descriptor.
+	 * @exception UsbException If unsuccessful, or the descriptor is invalid.
+	 */
+	public static UsbDescriptorParser getDeviceDescriptor(UsbDevice usbDevice) throws UsbException
+	{
+		Map<Integer,UsbDescriptorParser> descriptors = getDescriptorCache(usbDevice);
+		UsbDescriptorParser parser = descriptors.get(DEVICE_DESCRIPTOR_KEY);
+
+		if (null == parser) {
+			byte[] data = new byte[UsbConst.DESCRIPTOR_MIN_LENGTH_DEVICE];
+			int length = getDescriptor(usbDevice, UsbConst.DESCRIPTOR_TYPE_DEVICE, (byte)0, (short)0, data);
+
+			parser = parseDescriptor(data, length, UsbConst.DESCRIPTOR_TYPE_DEVICE, UsbConst.DESCRIPTOR_MIN_LENGTH_DEVICE);
+			descriptors.put(DEVICE_DESCRIPTOR_KEY, parser);
+		}
+
+		return parser;
+	}
+
+	/**
+	 * Get a complete configuration descriptor.
+	 * <p>
+	 * This reads the configuration descriptor header to get its
+	 * {@link javax.usb.UsbConfigurationDescriptor#wTotalLength() wTotalLength}, then reads exactly that many bytes,
+	 * and returns them parsed; the data is a private copy, so the result is immutable.
+	 * The result is remembered for the UsbDevice and index, so later calls do not make
+	 * any control transfer, until {@link #clearDescriptorCache(UsbDevice) cleared}.
+	 * @param usbDevice The UsbDevice.
+	 * @param index The configuration descriptor index.
+	 * @return The parsed configuration descriptor, with all its interface, endpoint, and class-specific descriptors.
+	 * @exception UsbException If unsuccessful, or the descriptor is invalid.
+	 */
+	public static UsbDescriptorParser getConfigurationDescriptorTree(UsbDevice usbDevice, byte index) throws UsbException
+	{
+		Map<Integer,UsbDescriptorParser> descriptors = getDescriptorCache(usbDevice);
+		Integer key = Integer.valueOf(UsbUtil.unsignedInt(index));
+		UsbDescriptorParser parser = descriptors.get(key);
+
+		if (null == parser) {
+			byte[] header = new byte[UsbConst.DESCRIPTOR_MIN_LENGTH_CONFIGURATION];
+			int length = getDescriptor(usbDevice, UsbConst.DESCRIPTOR_TYPE_CONFIGURATION, index, (short)0, header);
+			if (UsbConst.DESCRIPTOR_MIN_LENGTH_CONFIGURATION > length)
+				throw new UsbException("Configuration descriptor header is too short : " + length);
+
+			int totalLength = UsbUtil.unsignedInt(UsbUtil.toShort(header[3], header[2]));
+			if (UsbConst.DESCRIPTOR_MIN_LENGTH_CONFIGURATION > totalLength)
+				throw new UsbException("Invalid configuration descriptor wTotalLength : " + totalLength);
+
+			byte[] data = header;
+			if (totalLength > header.length) {
+				data = new byte[totalLength];
+				length = getDescriptor(usbDevice, UsbConst.DESCRIPTOR_TYPE_CONFIGURATION, index, (short)0, data);
+			}
+
+			parser = parseDescriptor(data, Math.min(length, totalLength), UsbConst.DESCRIPTOR_TYPE_CONFIGURATION, totalLength);
+			descriptors.put(key, parser);
+		}
+
+		return parser;
+	}
+
+	/**
+	 * Forget the descriptors remembered for a UsbDevice.
+	 * <p>
+	 * Descriptors are also forgotten when the UsbDevice is no longer referenced.
+	 * @param usbDevice The UsbDevice.
+	 */
+	public static void clearDescriptorCache(UsbDevice usbDevice) { descriptorCache.remove(usbDevice); }
+
 	/**
 	 * Get Interface.
 	 * @param usbDevice The UsbDevice.
@@ -334,11 +584,7 @@ public class StandardRequest
 	 */
 	public static short getStatus(UsbDevice usbDevice, byte recipient, short target) throws UsbException,IllegalArgumentException
 	{
-		checkRecipient(recipient);
-		if (UsbConst.REQUESTTYPE_RECIPIENT_DEVICE == recipient && 0 != target)
-			throw new IllegalArgumentException("If the recipient is device, the target must be 0");
-
-		byte bmRequestType = (byte)(REQUESTTYPE_GET_STATUS | recipient);
+		byte bmRequestType = recipientRequestType(REQUESTTYPE_GET_STATUS, recipient, target);
 		byte bRequest = UsbConst.REQUEST_GET_STATUS;
 		short wValue = 0;
 		short wIndex = target;
@@ -350,7 +596,7 @@ public class StandardRequest
 
 		usbDevice.syncSubmit(usbControlIrp);
 
-		return (short)((data[1] << 8) | data[0]);
+		return UsbUtil.toShort(data[1], data[0]);
 	}
 
 	/**
@@ -432,7 +678,7 @@ public class StandardRequest
 	{
 		byte bmRequestType = REQUESTTYPE_SET_DESCRIPTOR;
 		byte bRequest = UsbConst.REQUEST_SET_DESCRIPTOR;
-		short wValue = (short)((type << 8) | index);
+		short wValue = descriptorValue(type, index);
 		short wIndex = langid;
 
 		UsbControlIrp usbControlIrp = usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex);
@@ -462,9 +708,7 @@ public class StandardRequest
 	 */
 	public static void setFeature(UsbDevice usbDevice, byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
 	{
-		checkRecipient(recipient);
-
-		byte bmRequestType = (byte)(REQUESTTYPE_SET_FEATURE | recipient);
+		byte bmRequestType = recipientRequestType(REQUESTTYPE_SET_FEATURE, recipient);
 		byte bRequest = UsbConst.REQUEST_SET_FEATURE;
 		short wValue = featureSelector;
 		short wIndex = target;
@@ -510,7 +754,311 @@ public class StandardRequest
 
 		usbDevice.syncSubmit(usbControlIrp);
 
-		return (short)((data[1] << 8) | data[0]);
+		return UsbUtil.toShort(data[1], data[0]);
+	}
+
+	//**************************************************************************
+	// Asynchronous class methods
+
+	/**
+	 * Create a Clear Feature UsbControlIrp.
+	 * <p>
+	 * The UsbControlIrp can be submitted alone, or in a List with
+	 * {@link #futureSubmit(UsbDevice,List) futureSubmit}.
+	 * @param recipient The recipient.
+	 * @param featureSelector The Feature Selector.
+	 * @param target The target interface number or endpoint address.
+	 * @return The UsbControlIrp.
+	 * @exception IllegalArgumentException If the recipient or target is invalid.
+	 */
+	public static DefaultUsbControlIrp createClearFeatureIrp(byte recipient, short featureSelector, short target) throws IllegalArgumentException
+	{
+		return new DefaultUsbControlIrp(recipientRequestType(REQUESTTYPE_CLEAR_FEATURE, recipient, target), UsbConst.REQUEST_CLEAR_FEATURE, featureSelector, target);
+	}
+
+	/**
+	 * Create a Get Configuration UsbControlIrp.
+	 * <p>
+	 * The configuration number is the first byte of the data.
+	 * @return The UsbControlIrp.
+	 */
+	public static DefaultUsbControlIrp createGetConfigurationIrp()
+	{ return createIrp(REQUESTTYPE_GET_CONFIGURATION, UsbConst.REQUEST_GET_CONFIGURATION, (short)0, (short)0, 1); }
+
+	/**
+	 * Create a Get Descriptor UsbControlIrp.
+	 * @param type The Descriptor Type.
+	 * @param index The Descriptor Index.
+	 * @param langid The String Descriptor Language ID.
+	 * @param data The data to fill with the Descriptor.
+	 * @return The UsbControlIrp.
+	 * @see #getDescriptor(UsbDevice,byte,byte,short,byte[]) getDescriptor
+	 */
+	public static DefaultUsbControlIrp createGetDescriptorIrp(byte type, byte index, short langid, byte[] data)
+	{
+		DefaultUsbControlIrp usbControlIrp =
+			new DefaultUsbControlIrp(REQUESTTYPE_GET_DESCRIPTOR, UsbConst.REQUEST_GET_DESCRIPTOR, descriptorValue(type, index), langid);
+		usbControlIrp.setData(data);
+		return usbControlIrp;
+	}
+
+	/**
+	 * Create a Get Interface UsbControlIrp.
+	 * <p>
+	 * The alternate setting is the first byte of the data.
+	 * @param interfaceNumber The interface number.
+	 * @return The UsbControlIrp.
+	 */
+	public static DefaultUsbControlIrp createGetInterfaceIrp(short interfaceNumber)
+	{ return createIrp(REQUESTTYPE_GET_INTERFACE, UsbConst.REQUEST_GET_INTERFACE, (short)0, interfaceNumber, 1); }
+
+	/**
+	 * Create a Get Status UsbControlIrp.
+	 * <p>
+	 * The status is the first two bytes of the data, little-endian.
+	 * @param recipient The recipient.
+	 * @param target The target interface number or endpoint address.
+	 * @return The UsbControlIrp.
+	 * @exception IllegalArgumentException If the recipient or target is invalid.
+	 */
+	public static DefaultUsbControlIrp createGetStatusIrp(byte recipient, short target) throws IllegalArgumentException
+	{
+		return createIrp(recipientRequestType(REQUESTTYPE_GET_STATUS, recipient, target), UsbConst.REQUEST_GET_STATUS, (short)0, target, 2);
+	}
+
+	/**
+	 * Create a Set Address UsbControlIrp.
+	 * @param deviceAddress The new device address.
+	 * @return The UsbControlIrp.
+	 * @see #setAddress(UsbDevice,short) setAddress
+	 */
+	public static DefaultUsbControlIrp createSetAddressIrp(short deviceAddress)
+	{ return new DefaultUsbControlIrp(REQUESTTYPE_SET_ADDRESS, UsbConst.REQUEST_SET_ADDRESS, deviceAddress, (short)0); }
+
+	/**
+	 * Create a Set Configuration UsbControlIrp.
+	 * @param configurationValue The new configuration value.
+	 * @return The UsbControlIrp.
+	 */
+	public static DefaultUsbControlIrp createSetConfigurationIrp(short configurationValue)
+	{ return new DefaultUsbControlIrp(REQUESTTYPE_SET_CONFIGURATION, UsbConst.REQUEST_SET_CONFIGURATION, configurationValue, (short)0); }
+
+	/**
+	 * Create a Set Descriptor UsbControlIrp.
+	 * @param type The Descriptor Type.
+	 * @param index The Descriptor Index.
+	 * @param langid The String Descriptor Language ID.
+	 * @param data The Descriptor.
+	 * @return The UsbControlIrp.
+	 * @see #setDescriptor(UsbDevice,byte,byte,short,byte[]) setDescriptor
+	 */
+	public static DefaultUsbControlIrp createSetDescriptorIrp(byte type, byte index, short langid, byte[] data)
+	{
+		DefaultUsbControlIrp usbControlIrp =
+			new DefaultUsbControlIrp(REQUESTTYPE_SET_DESCRIPTOR, UsbConst.REQUEST_SET_DESCRIPTOR, descriptorValue(type, index), langid);
+		usbControlIrp.setData(data);
+		return usbControlIrp;
+	}
+
+	/**
+	 * Create a Set Feature UsbControlIrp.
+	 * @param recipient The recipient.
+	 * @param featureSelector The Feature Selector.
+	 * @param target The target interface number or endpoint address.
+	 * @return The UsbControlIrp.
+	 * @exception IllegalArgumentException If the recipient is invalid.
+	 */
+	public static DefaultUsbControlIrp createSetFeatureIrp(byte recipient, short featureSelector, short target) throws IllegalArgumentException
+	{
+		return new DefaultUsbControlIrp(recipientRequestType(REQUESTTYPE_SET_FEATURE, recipient), UsbConst.REQUEST_SET_FEATURE, featureSelector, target);
+	}
+
+	/**
+	 * Create a Set Interface UsbControlIrp.
+	 * @param interfaceNumber The interface number.
+	 * @param alternateSetting The alternate setting number.
+	 * @return The UsbControlIrp.
+	 */
+	public static DefaultUsbControlIrp createSetInterfaceIrp(short interfaceNumber, short alternateSetting)
+	{ return new DefaultUsbControlIrp(REQUESTTYPE_SET_INTERFACE, UsbConst.REQUEST_SET_INTERFACE, alternateSetting, interfaceNumber); }
+
+	/**
+	 * Create a Synch Frame UsbControlIrp.
+	 * <p>
+	 * The frame number is the first two bytes of the data, little-endian.
+	 * @param endpointAddress The endpoint address.
+	 * @return The UsbControlIrp.
+	 */
+	public static DefaultUsbControlIrp createSynchFrameIrp(short endpointAddress)
+	{ return createIrp(REQUESTTYPE_SYNCH_FRAME, UsbConst.REQUEST_SYNCH_FRAME, (short)0, endpointAddress, 2); }
+
+	/**
+	 * Clear Feature, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param featureSelector The Feature Selector.
+	 * @param target The target interface number or endpoint address.
+	 * @return A CompletionStage for the completed UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 * @exception IllegalArgumentException If the recipient or target is invalid.
+	 */
+	public static CompletionStage<UsbIrp> futureClearFeature(UsbDevice usbDevice, byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
+	{ return usbDevice.futureSubmit(createClearFeatureIrp(recipient, featureSelector, target)); }
+
+	/**
+	 * Get Configuration, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @return A CompletionStage for the configuration number.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<Byte> futureGetConfiguration(UsbDevice usbDevice) throws UsbException
+	{ return usbDevice.futureSubmit(createGetConfigurationIrp()).thenApply(BYTE_RESULT); }
+
+	/**
+	 * Get Descriptor, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param type The Descriptor Type.
+	 * @param index The Descriptor Index.
+	 * @param langid The String Descriptor Language ID.
+	 * @param data The data to fill with the Descriptor.
+	 * @return A CompletionStage for the actual length of transferred data.
+	 * @exception UsbException If the submission fails.
+	 * @see #getDescriptor(UsbDevice,byte,byte,short,byte[]) getDescriptor
+	 */
+	public static CompletionStage<Integer> futureGetDescriptor(UsbDevice usbDevice, byte type, byte index, short langid, byte[] data) throws UsbException
+	{ return usbDevice.futureSubmit(createGetDescriptorIrp(type, index, langid, data)).thenApply(LENGTH_RESULT); }
+
+	/**
+	 * Get Interface, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param interfaceNumber The interface number.
+	 * @return A CompletionStage for the active alternate setting.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<Byte> futureGetInterface(UsbDevice usbDevice, short interfaceNumber) throws UsbException
+	{ return usbDevice.futureSubmit(createGetInterfaceIrp(interfaceNumber)).thenApply(BYTE_RESULT); }
+
+	/**
+	 * Get Status, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target interface number or endpoint address.
+	 * @return A CompletionStage for the status.
+	 * @exception UsbException If the submission fails.
+	 * @exception IllegalArgumentException If the recipient or target is invalid.
+	 */
+	public static CompletionStage<Short> futureGetStatus(UsbDevice usbDevice, byte recipient, short target) throws UsbException,IllegalArgumentException
+	{ return usbDevice.futureSubmit(createGetStatusIrp(recipient, target)).thenApply(SHORT_RESULT); }
+
+	/**
+	 * Set Address, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param deviceAddress The new device address.
+	 * @return A CompletionStage for the completed UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 * @see #setAddress(UsbDevice,short) setAddress
+	 */
+	public static CompletionStage<UsbIrp> futureSetAddress(UsbDevice usbDevice, short deviceAddress) throws UsbException
+	{ return usbDevice.futureSubmit(createSetAddressIrp(deviceAddress)); }
+
+	/**
+	 * Set Configuration, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param configurationValue The new configuration value.
+	 * @return A CompletionStage for the completed UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<UsbIrp> futureSetConfiguration(UsbDevice usbDevice, short configurationValue) throws UsbException
+	{ return usbDevice.futureSubmit(createSetConfigurationIrp(configurationValue)); }
+
+	/**
+	 * Set Descriptor, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param type The Descriptor Type.
+	 * @param index The Descriptor Index.
+	 * @param langid The String Descriptor Language ID.
+	 * @param data The Descriptor.
+	 * @return A CompletionStage for the actual length of transferred data.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<Integer> futureSetDescriptor(UsbDevice usbDevice, byte type, byte index, short langid, byte[] data) throws UsbException
+	{ return usbDevice.futureSubmit(createSetDescriptorIrp(type, index, langid, data)).thenApply(LENGTH_RESULT); }
+
+	/**
+	 * Set Feature, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param featureSelector The Feature Selector.
+	 * @param target The target interface number or endpoint address.
+	 * @return A CompletionStage for the completed UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 * @exception IllegalArgumentException If the recipient is invalid.
+	 */
+	public static CompletionStage<UsbIrp> futureSetFeature(UsbDevice usbDevice, byte recipient, short featureSelector, short target) throws UsbException,IllegalArgumentException
+	{ return usbDevice.futureSubmit(createSetFeatureIrp(recipient, featureSelector, target)); }
+
+	/**
+	 * Set Interface, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param interfaceNumber The interface number.
+	 * @param alternateSetting The alternate setting number.
+	 * @return A CompletionStage for the completed UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<UsbIrp> futureSetInterface(UsbDevice usbDevice, short interfaceNumber, short alternateSetting) throws UsbException
+	{ return usbDevice.futureSubmit(createSetInterfaceIrp(interfaceNumber, alternateSetting)); }
+
+	/**
+	 * Synch Frame, asynchronously.
+	 * @param usbDevice The UsbDevice.
+	 * @param endpointAddress The endpoint address.
+	 * @return A CompletionStage for the frame number.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<Short> futureSynchFrame(UsbDevice usbDevice, short endpointAddress) throws UsbException
+	{ return usbDevice.futureSubmit(createSynchFrameIrp(endpointAddress)).thenApply(SHORT_RESULT); }
+
+	/**
+	 * Submit a batch of requests, asynchronously.
+	 * <p>
+	 * The List of DefaultUsbControlIrps, normally created by the create methods of this class,
+	 * is submitted in one call to {@link javax.usb.UsbDevice#asyncSubmit(List) asyncSubmit(List)}.
+	 * The CompletionStage completes with the List when all the UsbControlIrps are complete;
+	 * if any failed, it completes exceptionally with the first UsbException in List order.
+	 * While the UsbControlIrps are in flight, their {@link javax.usb.util.UsbIrpListener UsbIrpListeners}
+	 * are replaced by ones used to track completion; when each completes, its previous UsbIrpListener
+	 * is restored and then called.  If the submission fails, all the previous UsbIrpListeners are restored.
+	 * @param usbDevice The UsbDevice.
+	 * @param list The List of DefaultUsbControlIrps.
+	 * @return A CompletionStage for the List.
+	 * @exception UsbException If the submission fails.
+	 * @exception IllegalArgumentException If the List contains anything other than DefaultUsbControlIrps.
+	 */
+	public static <T extends UsbIrp> CompletionStage<List<T>> futureSubmit(UsbDevice usbDevice, List<T> list) throws UsbException,IllegalArgumentException
+	{
+		for (int i=0; i<list.size(); i++)
+			if (!(list.get(i) instanceof DefaultUsbControlIrp))
+				throw new IllegalArgumentException("List element " + i + " is not a DefaultUsbControlIrp");
+
+		BatchUsbIrpListener<T> listener = new BatchUsbIrpListener<T>(list);
+
+		if (list.isEmpty())
+			return listener.getCompletableFuture();
+
+		for (int i=0; i<list.size(); i++)
+			listener.listen((DefaultUsbControlIrp)list.get(i));
+
+		try {
+			usbDevice.asyncSubmit(list);
+		} catch ( UsbException uE ) {
+			listener.restore();
+			throw uE;
+		} catch ( RuntimeException rE ) {
+			listener.restore();
+			throw rE;
+		}
+
+		return listener.getCompletableFuture();
 	}
 
 	//**************************************************************************
@@ -538,6 +1086,104 @@ public class StandardRequest
 		}
 	}
 
+	/**
+	 * Get the bmRequestType for a recipient.
+	 * @param requestType The bmRequestType without the recipient.
+	 * @param recipient The recipient.
+	 * @return The bmRequestType.
+	 * @exception IllegalArgumentException If the recipient is not valid.
+	 */
+	protected static byte recipientRequestType(byte requestType, byte recipient) throws IllegalArgumentException
+	{
+		checkRecipient(recipient);
+
+		return (byte)(requestType | recipient);
+	}
+
+	/**
+	 * Get the bmRequestType for a recipient and target.
+	 * <p>
+	 * If the recipient is device, the target must be 0.
+	 * @param requestType The bmRequestType without the recipient.
+	 * @param recipient The recipient.
+	 * @param target The target interface number or endpoint address.
+	 * @return The bmRequestType.
+	 * @exception IllegalArgumentException If the recipient or target is not valid.
+	 */
+	protected static byte recipientRequestType(byte requestType, byte recipient, short target) throws IllegalArgumentException
+	{
+		if (UsbConst.REQUESTTYPE_RECIPIENT_DEVICE == recipient && 0 != target)
+			throw new IllegalArgumentException("If the recipient is device, the target must be 0");
+
+		return recipientRequestType(requestType, recipient);
+	}
+
+	/**
+	 * Get the wValue for a Get or Set Descriptor request.
+	 * @param type The Descriptor Type, which is the wValue MSB.
+	 * @param index The Descriptor Index, which is the wValue LSB.
+	 * @return The wValue.
+	 */
+	protected static short descriptorValue(byte type, byte index)
+	{ return (short)((UsbUtil.unsignedInt(type) << 8) | UsbUtil.unsignedInt(index)); }
+
+	/**
+	 * Create a UsbControlIrp with a new buffer that must be completely filled.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 * @param length The length of the buffer.
+	 * @return The UsbControlIrp.
+	 */
+	protected static DefaultUsbControlIrp createIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex, int length)
+	{
+		DefaultUsbControlIrp usbControlIrp = new DefaultUsbControlIrp(bmRequestType, bRequest, wValue, wIndex);
+		usbControlIrp.setData(new byte[length]);
+		usbControlIrp.setAcceptShortPacket(false);
+		return usbControlIrp;
+	}
+
+	/**
+	 * Get the remembered descriptors of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @return The Map of remembered descriptors.
+	 */
+	protected static Map<Integer,UsbDescriptorParser> getDescriptorCache(UsbDevice usbDevice)
+	{
+		synchronized (descriptorCache) {
+			Map<Integer,UsbDescriptorParser> descriptors = descriptorCache.get(usbDevice);
+			if (null == descriptors) {
+				descriptors = new ConcurrentHashMap<Integer,UsbDescriptorParser>();
+				descriptorCache.put(usbDevice, descriptors);
+			}
+			return descriptors;
+		}
+	}
+
+	/**
+	 * Parse descriptor data.
+	 * @param data The descriptor data.
+	 * @param length The actual length of the data.
+	 * @param type The expected descriptor type.
+	 * @param expectedLength The expected length of the data.
+	 * @return An immutable UsbDescriptorParser.
+	 * @exception UsbException If the data is short or invalid.
+	 */
+	protected static UsbDescriptorParser parseDescriptor(byte[] data, int length, byte type, int expectedLength) throws UsbException
+	{
+		if (expectedLength > length)
+			throw new UsbException("Descriptor is too short : " + length + " of " + expectedLength + " bytes");
+		if (type != data[1])
+			throw new UsbException("Descriptor type is " + UsbUtil.toHexString(data[1]) + " not " + UsbUtil.toHexString(type));
+
+		try {
+			return new UsbDescriptorParser(ByteBuffer.wrap(data, 0, length).slice().asReadOnlyBuffer());
+		} catch ( IllegalArgumentException iaE ) {
+			throw new UsbException("Invalid descriptor : " + iaE.getMessage());
+		}
+	}
+
 	protected static final byte REQUESTTYPE_CLEAR_FEATURE =
 		UsbConst.REQUESTTYPE_DIRECTION_OUT | UsbConst.REQUESTTYPE_TYPE_STANDARD;
 	protected static final byte REQUESTTYPE_GET_CONFIGURATION =
@@ -560,4 +1206,87 @@ public class StandardRequest
 		UsbConst.REQUESTTYPE_DIRECTION_OUT | UsbConst.REQUESTTYPE_TYPE_STANDARD | UsbConst.REQUESTTYPE_RECIPIENT_INTERFACE;
 	protected static final byte REQUESTTYPE_SYNCH_FRAME =
 		UsbConst.REQUESTTYPE_DIRECTION_IN | UsbConst.REQUESTTYPE_TYPE_STANDARD | UsbConst.REQUESTTYPE_RECIPIENT_ENDPOINT;
+
+	private static final Integer DEVICE_DESCRIPTOR_KEY = Integer.valueOf(-1);
+
+	private static final Function<UsbIrp,Byte> BYTE_RESULT = new Function<UsbIrp,Byte>() {
+			public Byte apply(UsbIrp usbIrp) { return Byte.valueOf(usbIrp.getData()[usbIrp.getOffset()]); }
+		};
+	private static final Function<UsbIrp,Short> SHORT_RESULT = new Function<UsbIrp,Short>() {
+			public Short apply(UsbIrp usbIrp)
+			{ return Short.valueOf(UsbUtil.toShort(usbIrp.getData()[usbIrp.getOffset() + 1], usbIrp.getData()[usbIrp.getOffset()])); }
+		};
+	private static final Function<UsbIrp,Integer> LENGTH_RESULT = new Function<UsbIrp,Integer>() {
+			public Integer apply(UsbIrp usbIrp) { return Integer.valueOf(usbIrp.getActualLength()); }
+		};
+
+	private static Map<UsbDevice,Map<Integer,UsbDescriptorParser>> descriptorCache = new WeakHashMap<UsbDevice,Map<Integer,UsbDescriptorParser>>();
+
+	/**
+	 * Tracks the completion of a batch of UsbControlIrps.
+	 */
+	private static class BatchUsbIrpListener<T extends UsbIrp>
+	{
+		public BatchUsbIrpListener(List<T> list)
+		{
+			this.list = list;
+			remaining = new AtomicInteger(list.size());
+			previousListeners = new UsbIrpListener[list.size()];
+
+			if (list.isEmpty())
+				completableFuture.complete(list);
+		}
+
+		public CompletableFuture<List<T>> getCompletableFuture() { return completableFuture; }
+
+		public void listen(final DefaultUsbControlIrp usbControlIrp)
+		{
+			final UsbIrpListener previous = usbControlIrp.getUsbIrpListener();
+
+			previousListeners[listening++] = previous;
+
+			usbControlIrp.setUsbIrpListener(new UsbIrpListener() {
+					public void usbIrpCompleted(UsbIrp usbIrp)
+					{
+						try {
+							if (this == usbControlIrp.getUsbIrpListener())
+								usbControlIrp.setUsbIrpListener(previous);
+							if (null != previous)
+								previous.usbIrpCompleted(usbIrp);
+						} finally {
+							completed();
+						}
+					}
+				});
+		}
+
+		/** Restore the previous UsbIrpListeners, after the submission failed. */
+		public void restore()
+		{
+			for (int i=0; i<listening; i++)
+				((DefaultUsbControlIrp)list.get(i)).setUsbIrpListener(previousListeners[i]);
+		}
+
+		private void completed()
+		{
+			if (0 != remaining.decrementAndGet())
+				return;
+
+			for (int i=0; i<list.size(); i++) {
+				UsbIrp usbIrp = list.get(i);
+				if (usbIrp.isUsbException()) {
+					completableFuture.completeExceptionally(usbIrp.getUsbException());
+					return;
+				}
+			}
+
+			completableFuture.complete(list);
+		}
+
+		private CompletableFuture<List<T>> completableFuture = new CompletableFuture<List<T>>();
+		private List<T> list = null;
+		private UsbIrpListener[] previousListeners = null;
+		private int listening = 0;
+		private AtomicInteger remaining = null;
+	}
 }
@@ -0,0 +1,494 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import javax.usb.*;
+
+/**
+ * Parser of raw descriptor data.
+ * <p>
+ * This parses a sequence of descriptors, normally the complete configuration descriptor data
+ * (all {@link javax.usb.UsbConfigurationDescriptor#wTotalLength() wTotalLength} bytes, as returned by
+ * {@link javax.usb.util.StandardRequest#getDescriptor(UsbDevice,byte,byte,short,byte[]) GET_DESCRIPTOR}),
+ * or a device descriptor.  The data is not copied; the descriptors are read through flyweight
+ * views that implement the descriptor interfaces by reading each field from the data at its offset.
+ * A view can be {@link UsbDescriptorParser.DescriptorView#setOffset(int) moved} to another descriptor,
+ * so one view can be reused to walk any number of descriptors without allocating.
+ * <p>
+ * The descriptor chain is checked when this is created; every descriptor must have a
+ * bLength of at least 2 and lie entirely within the data.
+ * The views check that a descriptor is long enough for its type when they are moved to it.
+ * <p>
+ * Changes to the data are visible through the views.
+ * @author Dan Streetman
+ */
+public class UsbDescriptorParser
+{
+	/**
+	 * Constructor.
+	 * @param data The descriptor data.
+	 * @exception IllegalArgumentException If the descriptor chain is malformed.
+	 */
+	public UsbDescriptorParser(byte[] data) throws IllegalArgumentException
+	{ this(ByteBuffer.wrap(data)); }
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * The data is the buffer's remaining bytes.  The buffer's position and limit are not used after this returns.
+	 * @param buffer The descriptor data.
+	 * @exception IllegalArgumentException If the descriptor chain is malformed.
+	 */
+	public UsbDescriptorParser(ByteBuffer buffer) throws IllegalArgumentException
+	{
+		this.buffer = buffer.duplicate();
+		base = buffer.position();
+		length = buffer.remaining();
+
+		for (int offset = 0; offset < length; offset = nextOffset(offset)) {
+			int bLength = lengthAt(offset);
+			if (UsbConst.DESCRIPTOR_MIN_LENGTH > bLength)
+				throw new IllegalArgumentException("Descriptor at offset " + offset + " has invalid bLength " + bLength);
+			if ((offset + bLength) > length)
+				throw new IllegalArgumentException("Descriptor at offset " + offset + " extends beyond the data");
+		}
+	}
+
+	/**
+	 * Get the length of the data.
+	 * @return The number of bytes of descriptor data.
+	 */
+	public int getLength() { return length; }
+
+	/**
+	 * Get a byte of the data.
+	 * @param offset The offset in the data.
+	 * @return The byte.
+	 */
+	public byte getByte(int offset) { return buffer.get(base + offset); }
+
+	/**
+	 * Get a little-endian short of the data.
+	 * @param offset The offset in the data.
+	 * @return The short.
+	 */
+	public short getShort(int offset) { return UsbUtil.toShort(getByte(offset + 1), getByte(offset)); }
+
+	/**
+	 * Copy the data.
+	 * @return A new byte[] containing the data.
+	 */
+	public byte[] toByteArray()
+	{
+		byte[] data = new byte[length];
+		for (int i=0; i<length; i++)
+			data[i] = getByte(i);
+		return data;
+	}
+
+	/**
+	 * Get the offset of the descriptor following a descriptor.
+	 * @param offset The offset of a descriptor.
+	 * @return The offset of the next descriptor, which is the data length if there is none.
+	 */
+	public int nextOffset(int offset) { return offset + lengthAt(offset); }
+
+	/**
+	 * Find a descriptor of a specific type.
+	 * @param offset The offset to start searching from, which must be the offset of a descriptor.
+	 * @param type The descriptor type.
+	 * @return The offset of the first descriptor of the type at or after the offset, or -1 if there is none.
+	 */
+	public int findDescriptor(int offset, byte type)
+	{
+		for (; offset < length; offset = nextOffset(offset))
+			if (type == typeAt(offset))
+				return offset;
+
+		return -1;
+	}
+
+	/**
+	 * Find an interface descriptor.
+	 * @param interfaceNumber The interface number.
+	 * @param alternateSetting The alternate setting.
+	 * @return The offset of the interface descriptor, or -1 if there is none.
+	 */
+	public int findInterfaceDescriptor(byte interfaceNumber, byte alternateSetting)
+	{
+		int offset = 0;
+
+		while (0 <= (offset = findDescriptor(offset, UsbConst.DESCRIPTOR_TYPE_INTERFACE))) {
+			if (lengthAt(offset) >= UsbConst.DESCRIPTOR_MIN_LENGTH_INTERFACE &&
+				interfaceNumber == getByte(offset + 2) && alternateSetting == getByte(offset + 3))
+				return offset;
+			offset = nextOffset(offset);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Get a view of the descriptor at an offset.
+	 * @param offset The offset of the descriptor.
+	 * @return A new DescriptorView.
+	 * @exception IllegalArgumentException If there is no descriptor at the offset.
+	 */
+	public DescriptorView getDescriptor(int offset) throws IllegalArgumentException
+	{ return new DescriptorView(this).setOffset(offset); }
+
+	/**
+	 * Get a view of the device descriptor.
+	 * <p>
+	 * This is the first descriptor, for device descriptor data.
+	 * @return A new DeviceDescriptorView.
+	 * @exception IllegalArgumentException If the first descriptor is not a device descriptor.
+	 */
+	public DeviceDescriptorView getDeviceDescriptor() throws IllegalArgumentException
+	{ return (DeviceDescriptorView)new DeviceDescriptorView(this).setOffset(0); }
+
+	/**
+	 * Get a view of the configuration descriptor.
+	 * <p>
+	 * This is the first descriptor, for configuration descriptor data.
+	 * @return A new ConfigurationDescriptorView.
+	 * @exception IllegalArgumentException If the first descriptor is not a configuration descriptor.
+	 */
+	public ConfigurationDescriptorView getConfigurationDescriptor() throws IllegalArgumentException
+	{ return (ConfigurationDescriptorView)new ConfigurationDescriptorView(this).setOffset(0); }
+
+	/**
+	 * Get a view of an interface descriptor.
+	 * @param interfaceNumber The interface number.
+	 * @param alternateSetting The alternate setting.
+	 * @return A new InterfaceDescriptorView, or null if there is no such interface descriptor.
+	 */
+	public InterfaceDescriptorView getInterfaceDescriptor(byte interfaceNumber, byte alternateSetting)
+	{
+		int offset = findInterfaceDescriptor(interfaceNumber, alternateSetting);
+
+		return 0 > offset ? null : (InterfaceDescriptorView)new InterfaceDescriptorView(this).setOffset(offset);
+	}
+
+	/**
+	 * Get views of all interface descriptors.
+	 * @return A List of new InterfaceDescriptorViews, in the order they appear.
+	 */
+	public List<InterfaceDescriptorView> getInterfaceDescriptors()
+	{
+		List<InterfaceDescriptorView> list = new ArrayList<InterfaceDescriptorView>();
+
+		for (int offset = 0; 0 <= (offset = findDescriptor(offset, UsbConst.DESCRIPTOR_TYPE_INTERFACE)); offset = nextOffset(offset))
+			list.add((InterfaceDescriptorView)new InterfaceDescriptorView(this).setOffset(offset));
+
+		return list;
+	}
+
+	/**
+	 * Get views of an interface descriptor's endpoint descriptors.
+	 * <p>
+	 * These are the endpoint descriptors following the interface descriptor, up to the next interface descriptor.
+	 * @param interfaceOffset The offset of the interface descriptor.
+	 * @return A List of new EndpointDescriptorViews, in the order they appear.
+	 */
+	public List<EndpointDescriptorView> getEndpointDescriptors(int interfaceOffset)
+	{
+		List<EndpointDescriptorView> list = new ArrayList<EndpointDescriptorView>();
+
+		for (int offset = nextOffset(interfaceOffset); offset < length && UsbConst.DESCRIPTOR_TYPE_INTERFACE != typeAt(offset); offset = nextOffset(offset))
+			if (UsbConst.DESCRIPTOR_TYPE_ENDPOINT == typeAt(offset))
+				list.add((EndpointDescriptorView)new EndpointDescriptorView(this).setOffset(offset));
+
+		return list;
+	}
+
+	/**
+	 * Iterate over the class-specific descriptors following a descriptor.
+	 * <p>
+	 * These are the descriptors following the specified descriptor, up to the next configuration,
+	 * interface, or endpoint descriptor; for example a HID descriptor following its interface descriptor,
+	 * or class-specific endpoint descriptors following their endpoint descriptor.
+	 * <p>
+	 * The Iterator returns the same DescriptorView each time, moved to the next descriptor;
+	 * it must be {@link UsbDescriptorParser.DescriptorView#copy() copied} to be kept.
+	 * @param offset The offset of the standard descriptor.
+	 * @return An Iterator of DescriptorViews.
+	 */
+	public Iterator<DescriptorView> getClassSpecificDescriptors(int offset)
+	{ return new ClassSpecificIterator(nextOffset(offset)); }
+
+	/**
+	 * Get the bLength at an offset.
+	 * @param offset The offset.
+	 * @return The unsigned bLength.
+	 */
+	protected int lengthAt(int offset) { return UsbUtil.unsignedInt(getByte(offset)); }
+
+	/**
+	 * Get the bDescriptorType at an offset.
+	 * @param offset The offset.
+	 * @return The bDescriptorType.
+	 */
+	protected byte typeAt(int offset) { return getByte(offset + 1); }
+
+	/**
+	 * If a descriptor type is a standard configuration, interface, or endpoint descriptor.
+	 * @param type The descriptor type.
+	 * @return If the type ends a list of class-specific descriptors.
+	 */
+	protected static boolean isStandardType(byte type)
+	{
+		switch (type) {
+		case UsbConst.DESCRIPTOR_TYPE_CONFIGURATION:
+		case UsbConst.DESCRIPTOR_TYPE_INTERFACE:
+		case UsbConst.DESCRIPTOR_TYPE_ENDPOINT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private ByteBuffer buffer = null;
+	private int base = 0;
+	private int length = 0;
+
+	/**
+	 * Iterator over class-specific descriptors.
+	 */
+	private class ClassSpecificIterator implements Iterator<DescriptorView>
+	{
+		public ClassSpecificIterator(int offset) { next = offset; }
+
+		public boolean hasNext() { return next < length && !isStandardType(typeAt(next)); }
+
+		public DescriptorView next()
+		{
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			view.setOffset(next);
+			next = nextOffset(next);
+			return view;
+		}
+
+		public void remove() { throw new UnsupportedOperationException(); }
+
+		private int next = 0;
+		private DescriptorView view = new DescriptorView(UsbDescriptorParser.this);
+	}
+
+	/**
+	 * A flyweight view of a descriptor.
+	 */
+	public static class DescriptorView implements UsbDescriptor
+	{
+		/**
+		 * Constructor.
+		 * <p>
+		 * The view must be {@link #setOffset(int) moved} to a descriptor before it is used.
+		 * @param parser The UsbDescriptorParser.
+		 */
+		public DescriptorView(UsbDescriptorParser parser) { this.parser = parser; }
+
+		/**
+		 * Get the UsbDescriptorParser.
+		 * @return The UsbDescriptorParser.
+		 */
+		public UsbDescriptorParser getParser() { return parser; }
+
+		/**
+		 * Get the offset.
+		 * @return The offset of the descriptor in the data.
+		 */
+		public int getOffset() { return offset; }
+
+		/**
+		 * Move this view to another descriptor.
+		 * @param offset The offset of the descriptor.
+		 * @return This.
+		 * @exception IllegalArgumentException If the offset is outside the data, or the descriptor is not valid for this view.
+		 */
+		public DescriptorView setOffset(int offset) throws IllegalArgumentException
+		{
+			if (0 > offset || (offset + UsbConst.DESCRIPTOR_MIN_LENGTH) > parser.getLength())
+				throw new IllegalArgumentException("No descriptor at offset " + offset);
+			if (parser.lengthAt(offset) < getMinLength())
+				throw new IllegalArgumentException("Descriptor at offset " + offset + " is too short");
+			if (0 != getType() && getType() != parser.typeAt(offset))
+				throw new IllegalArgumentException("Descriptor at offset " + offset + " is type " + parser.typeAt(offset) + " not " + getType());
+
+			this.offset = offset;
+			return this;
+		}
+
+		/**
+		 * Move this view to the next descriptor of its type.
+		 * @return If there was a next descriptor; if not, this view is not moved.
+		 */
+		public boolean next()
+		{
+			int next = parser.nextOffset(offset);
+
+			if (0 != getType())
+				next = parser.findDescriptor(next, getType());
+
+			if (0 > next || next >= parser.getLength())
+				return false;
+
+			setOffset(next);
+			return true;
+		}
+
+		/**
+		 * Copy this view.
+		 * @return A new view of the same descriptor.
+		 */
+		public DescriptorView copy()
+		{
+			DescriptorView copy = newView();
+			copy.offset = offset;
+			return copy;
+		}
+
+		/**
+		 * Copy the descriptor.
+		 * @return A new byte[] containing the descriptor.
+		 */
+		public byte[] toByteArray()
+		{
+			byte[] data = new byte[UsbUtil.unsignedInt(bLength())];
+			for (int i=0; i<data.length; i++)
+				data[i] = getByte(i);
+			return data;
+		}
+
+		public byte bLength() { return getByte(0); }
+		public byte bDescriptorType() { return getByte(1); }
+
+		/**
+		 * Get a byte of the descriptor.
+		 * @param index The index in the descriptor.
+		 * @return The byte.
+		 */
+		public byte getByte(int index) { return parser.getByte(offset + index); }
+
+		/**
+		 * Get a little-endian short of the descriptor.
+		 * @param index The index in the descriptor.
+		 * @return The short.
+		 */
+		public short getShort(int index) { return parser.getShort(offset + index); }
+
+		/**
+		 * Get the descriptor type this view requires.
+		 * @return The descriptor type, or 0 for any type.
+		 */
+		protected byte getType() { return 0; }
+
+		/**
+		 * Get the minimum bLength this view requires.
+		 * @return The minimum bLength.
+		 */
+		protected int getMinLength() { return UsbConst.DESCRIPTOR_MIN_LENGTH; }
+
+		/**
+		 * Create a view of the same class.
+		 * @return A new view, not yet moved to a descriptor.
+		 */
+		protected DescriptorView newView() { return new DescriptorView(parser); }
+
+		protected UsbDescriptorParser parser = null;
+		protected int offset = 0;
+	}
+
+	/**
+	 * A flyweight view of a device descriptor.
+	 */
+	public static class DeviceDescriptorView extends DescriptorView implements UsbDeviceDescriptor
+	{
+		public DeviceDescriptorView(UsbDescriptorParser parser) { super(parser); }
+
+		public short bcdUSB() { return getShort(2); }
+		public byte bDeviceClass() { return getByte(4); }
+		public byte bDeviceSubClass() { return getByte(5); }
+		public byte bDeviceProtocol() { return getByte(6); }
+		public byte bMaxPacketSize0() { return getByte(7); }
+		public short idVendor() { return getShort(8); }
+		public short idProduct() { return getShort(10); }
+		public short bcdDevice() { return getShort(12); }
+		public byte iManufacturer() { return getByte(14); }
+		public byte iProduct() { return getByte(15); }
+		public byte iSerialNumber() { return getByte(16); }
+		public byte bNumConfigurations() { return getByte(17); }
+
+		protected byte getType() { return UsbConst.DESCRIPTOR_TYPE_DEVICE; }
+		protected int getMinLength() { return UsbConst.DESCRIPTOR_MIN_LENGTH_DEVICE; }
+		protected DescriptorView newView() { return new DeviceDescriptorView(parser); }
+	}
+
+	/**
+	 * A flyweight view of a configuration descriptor.
+	 */
+	public static class ConfigurationDescriptorView extends DescriptorView implements UsbConfigurationDescriptor
+	{
+		public ConfigurationDescriptorView(UsbDescriptorParser parser) { super(parser); }
+
+		public short wTotalLength() { return getShort(2); }
+		public byte bNumInterfaces() { return getByte(4); }
+		public byte bConfigurationValue() { return getByte(5); }
+		public byte iConfiguration() { return getByte(6); }
+		public byte bmAttributes() { return getByte(7); }
+		public byte bMaxPower() { return getByte(8); }
+
+		protected byte getType() { return UsbConst.DESCRIPTOR_TYPE_CONFIGURATION; }
+		protected int getMinLength() { return UsbConst.DESCRIPTOR_MIN_LENGTH_CONFIGURATION; }
+		protected DescriptorView newView() { return new ConfigurationDescriptorView(parser); }
+	}
+
+	/**
+	 * A flyweight view of an interface descriptor.
+	 */
+	public static class InterfaceDescriptorView extends DescriptorView implements UsbInterfaceDescriptor
+	{
+		public InterfaceDescriptorView(UsbDescriptorParser parser) { super(parser); }
+
+		public byte bInterfaceNumber() { return getByte(2); }
+		public byte bAlternateSetting() { return getByte(3); }
+		public byte bNumEndpoints() { return getByte(4); }
+		public byte bInterfaceClass() { return getByte(5); }
+		public byte bInterfaceSubClass() { return getByte(6); }
+		public byte bInterfaceProtocol() { return getByte(7); }
+		public byte iInterface() { return getByte(8); }
+
+		protected byte getType() { return UsbConst.DESCRIPTOR_TYPE_INTERFACE; }
+		protected int getMinLength() { return UsbConst.DESCRIPTOR_MIN_LENGTH_INTERFACE; }
+		protected DescriptorView newView() { return new InterfaceDescriptorView(parser); }
+	}
+
+	/**
+	 * A flyweight view of an endpoint descriptor.
+	 */
+	public static class EndpointDescriptorView extends DescriptorView implements UsbEndpointDescriptor
+	{
+		public EndpointDescriptorView(UsbDescriptorParser parser) { super(parser); }
+
+		public byte bEndpointAddress() { return getByte(2); }
+		public byte bmAttributes() { return getByte(3); }
+		public short wMaxPacketSize() { return getShort(4); }
+		public byte bInterval() { return getByte(6); }
+
+		protected byte getType() { return UsbConst.DESCRIPTOR_TYPE_ENDPOINT; }
+		protected int getMinLength() { return UsbConst.DESCRIPTOR_MIN_LENGTH_ENDPOINT; }
+		protected DescriptorView newView() { return new EndpointDescriptorView(parser); }
+	}
+}
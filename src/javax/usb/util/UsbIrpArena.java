@@ -0,0 +1,190 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.usb.*;
+
+/**
+ * An arena of off-heap UsbIrps.
+ * <p>
+ * This allocates one large, page-aligned {@link java.nio.ByteBuffer#isDirect() direct} ByteBuffer,
+ * and divides it into fixed-size slots, each of which is the buffer of a
+ * {@link javax.usb.util.DefaultUsbBufferIrp DefaultUsbBufferIrp}.  The data is kept outside of the
+ * Java heap, so large, long-lived transfer buffers (e.g. capture rings) are never scanned or copied
+ * by the garbage collector; only the small UsbIrp Objects are on the heap, and those are created once
+ * and reused.
+ * <p>
+ * The UsbIrps are {@link javax.usb.UsbBufferIrp UsbBufferIrps}, so they may be submitted to any
+ * UsbPipe; implementations that cannot use a direct buffer fall back to copying through a byte[].
+ * <p>
+ * UsbIrps are {@link #allocateUsbIrp() allocated} and {@link #free(DefaultUsbBufferIrp) freed};
+ * a freed UsbIrp is {@link javax.usb.util.DefaultUsbIrp#reset() reset}.  After the arena is
+ * {@link #close() closed}, no more UsbIrps may be allocated and the arena releases its buffer;
+ * the native memory is released once no UsbIrp from the arena is referenced.
+ * A UsbIrp must not be freed while it is submitted, and the arena should not be closed
+ * while any of its UsbIrps are submitted.
+ * <p>
+ * This is Thread-safe.
+ * @author Dan Streetman
+ */
+public class UsbIrpArena
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * The slots are aligned to {@link #DEFAULT_ALIGNMENT 4096} bytes.
+	 * @param slotCount The number of slots (UsbIrps).
+	 * @param slotSize The size of each slot.
+	 * @exception IllegalArgumentException If the slot count or size is not positive, or the total size is too large.
+	 */
+	public UsbIrpArena(int slotCount, int slotSize) throws IllegalArgumentException
+	{ this(slotCount, slotSize, DEFAULT_ALIGNMENT); }
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * If the slot size is a multiple of the alignment, every slot is aligned;
+	 * otherwise only the first slot is aligned.
+	 * @param slotCount The number of slots (UsbIrps).
+	 * @param slotSize The size of each slot.
+	 * @param alignment The alignment of the arena, which must be a power of 2.
+	 * @exception IllegalArgumentException If the slot count or size is not positive, the total size is too large,
+	 * or the alignment is not a power of 2.
+	 */
+	public UsbIrpArena(int slotCount, int slotSize, int alignment) throws IllegalArgumentException
+	{
+		if (0 >= slotCount || 0 >= slotSize)
+			throw new IllegalArgumentException("Slot count and size must be positive.");
+		if ((long)Integer.MAX_VALUE < ((long)slotCount * (long)slotSize) + alignment)
+			throw new IllegalArgumentException("Total arena size cannot exceed " + Integer.MAX_VALUE + " bytes.");
+
+		this.slotSize = slotSize;
+		arenaBuffer = UsbUtil.allocateAlignedBuffer(slotCount * slotSize, alignment);
+		freeUsbIrps = new ArrayBlockingQueue<ArenaUsbIrp>(slotCount);
+
+		for (int i=0; i<slotCount; i++) {
+			ByteBuffer slot = arenaBuffer.duplicate();
+			slot.position(i * slotSize);
+			slot.limit((i + 1) * slotSize);
+			freeUsbIrps.offer(new ArenaUsbIrp(this, slot.slice()));
+		}
+
+		this.slotCount = slotCount;
+	}
+
+	/**
+	 * Get the number of slots.
+	 * @return The number of slots.
+	 */
+	public int getSlotCount() { return slotCount; }
+
+	/**
+	 * Get the size of each slot.
+	 * @return The slot size.
+	 */
+	public int getSlotSize() { return slotSize; }
+
+	/**
+	 * Get the number of free slots.
+	 * @return The number of free slots.
+	 */
+	public int getFreeSlotCount() { return freeUsbIrps.size(); }
+
+	/**
+	 * If this is closed.
+	 * @return If this is closed.
+	 */
+	public boolean isClosed() { return closed; }
+
+	/**
+	 * Allocate a UsbIrp.
+	 * <p>
+	 * The UsbIrp's buffer is one whole slot; its position is 0 and its limit is the slot size.
+	 * @return A DefaultUsbBufferIrp, or null if all slots are allocated.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	public DefaultUsbBufferIrp allocateUsbIrp() throws IllegalStateException
+	{
+		if (closed)
+			throw new IllegalStateException("UsbIrpArena is closed.");
+
+		ArenaUsbIrp usbIrp = freeUsbIrps.poll();
+
+		if (null != usbIrp)
+			usbIrp.allocated.set(true);
+
+		return usbIrp;
+	}
+
+	/**
+	 * Free a UsbIrp.
+	 * <p>
+	 * The UsbIrp is {@link javax.usb.util.DefaultUsbIrp#reset() reset} and its slot is made available.
+	 * If this is closed, the UsbIrp is only reset.
+	 * @param usbIrp The UsbIrp.
+	 * @exception IllegalArgumentException If the UsbIrp was not allocated from this arena.
+	 * @exception IllegalStateException If the UsbIrp is already free.
+	 */
+	public void free(DefaultUsbBufferIrp usbIrp) throws IllegalArgumentException,IllegalStateException
+	{
+		if (!(usbIrp instanceof ArenaUsbIrp) || this != ((ArenaUsbIrp)usbIrp).arena)
+			throw new IllegalArgumentException("UsbIrp was not allocated from this UsbIrpArena.");
+
+		ArenaUsbIrp arenaUsbIrp = (ArenaUsbIrp)usbIrp;
+
+		if (!arenaUsbIrp.allocated.compareAndSet(true, false))
+			throw new IllegalStateException("UsbIrp is already free.");
+
+		arenaUsbIrp.reset();
+
+		if (!closed)
+			freeUsbIrps.offer(arenaUsbIrp);
+	}
+
+	/**
+	 * Close this.
+	 * <p>
+	 * No more UsbIrps may be allocated, and all free UsbIrps and the arena buffer are released.
+	 */
+	public void close()
+	{
+		closed = true;
+		freeUsbIrps.clear();
+		arenaBuffer = null;
+	}
+
+	/** The default alignment, which is a common page size. */
+	public static final int DEFAULT_ALIGNMENT = 4096;
+
+	private int slotCount = 0;
+	private int slotSize = 0;
+	private ByteBuffer arenaBuffer = null;
+	private BlockingQueue<ArenaUsbIrp> freeUsbIrps = null;
+	private volatile boolean closed = false;
+
+	/**
+	 * A DefaultUsbBufferIrp that belongs to a UsbIrpArena.
+	 */
+	private static class ArenaUsbIrp extends DefaultUsbBufferIrp
+	{
+		public ArenaUsbIrp(UsbIrpArena arena, ByteBuffer slot)
+		{
+			super(slot);
+			this.arena = arena;
+		}
+
+		public UsbIrpArena arena = null;
+		public AtomicBoolean allocated = new AtomicBoolean(false);
+	}
+}
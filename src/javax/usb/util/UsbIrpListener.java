@@ -0,0 +1,40 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.EventListener;
+
+import javax.usb.*;
+
+/**
+ * Interface for receiving completion of a single UsbIrp.
+ * <p>
+ * Unlike a {@link javax.usb.event.UsbPipeListener UsbPipeListener}, which receives
+ * events for every submission on a UsbPipe, this is attached to one
+ * {@link javax.usb.util.DefaultUsbIrp#setUsbIrpListener(UsbIrpListener) UsbIrp}
+ * and is called only when that UsbIrp {@link javax.usb.UsbIrp#complete() completes}.
+ * No event Object is created.
+ * @author Dan Streetman
+ */
+public interface UsbIrpListener extends EventListener
+{
+	/**
+	 * The UsbIrp completed.
+	 * <p>
+	 * This is called from {@link javax.usb.UsbIrp#complete() complete},
+	 * after the UsbIrp is {@link javax.usb.UsbIrp#isComplete() complete};
+	 * the {@link javax.usb.UsbIrp#getActualLength() actual length} and
+	 * {@link javax.usb.UsbIrp#getUsbException() UsbException} are already set.
+	 * This is called on the Thread that completed the UsbIrp, and so should
+	 * not block.
+	 * @param usbIrp The completed UsbIrp.
+	 */
+	public void usbIrpCompleted( UsbIrp usbIrp );
+}
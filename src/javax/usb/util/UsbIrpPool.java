@@ -0,0 +1,187 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.usb.*;
+
+/**
+ * A pool of reusable UsbIrps.
+ * <p>
+ * This hands out {@link javax.usb.util.DefaultUsbIrp DefaultUsbIrps} and
+ * {@link javax.usb.util.DefaultUsbControlIrp DefaultUsbControlIrps} whose data
+ * buffers are pre-allocated to the pool's buffer size.  When a UsbIrp is
+ * {@link #putUsbIrp(DefaultUsbIrp) returned} it is {@link javax.usb.util.DefaultUsbIrp#reset() reset}
+ * and made available again, so a loop that gets, submits, and returns UsbIrps
+ * does not allocate once the pool is warm.
+ * <p>
+ * Every reset advances the UsbIrp's {@link javax.usb.util.DefaultUsbIrp#getGeneration() generation}.
+ * A holder may save the generation when it gets a UsbIrp, and detect a stale
+ * reference by comparing it later; returning a UsbIrp with
+ * {@link #putUsbIrp(DefaultUsbIrp,int) the generation} detects a UsbIrp returned twice.
+ * <p>
+ * If the pool is empty, a new UsbIrp is created.  If the pool is full, returned UsbIrps are dropped.
+ * A UsbIrp that is already in the pool is never accepted again, so it cannot be handed to two holders.
+ * Only exact DefaultUsbIrps and DefaultUsbControlIrps are kept; subclasses are dropped.
+ * A UsbIrp must not be returned while it is submitted.
+ * <p>
+ * This is Thread-safe.
+ * @author Dan Streetman
+ */
+public class UsbIrpPool
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * The pool is filled with the specified number of UsbIrps, and of UsbControlIrps.
+	 * @param capacity The maximum number of UsbIrps kept in the pool.
+	 * @param bufferSize The size of each UsbIrp's data buffer.
+	 * @exception IllegalArgumentException If the capacity is not positive, or the buffer size is negative.
+	 */
+	public UsbIrpPool(int capacity, int bufferSize) throws IllegalArgumentException
+	{
+		if (0 >= capacity)
+			throw new IllegalArgumentException("Capacity must be positive.");
+		if (0 > bufferSize)
+			throw new IllegalArgumentException("Buffer size cannot be negative.");
+
+		this.bufferSize = bufferSize;
+		usbIrps = new ArrayBlockingQueue<DefaultUsbIrp>(capacity);
+		usbControlIrps = new ArrayBlockingQueue<DefaultUsbControlIrp>(capacity);
+
+		for (int i=0; i<capacity; i++) {
+			offer(new DefaultUsbIrp(new byte[bufferSize]));
+			offer(new DefaultUsbControlIrp(new byte[bufferSize], 0, bufferSize, true, (byte)0, (byte)0, (short)0, (short)0));
+		}
+	}
+
+	/**
+	 * Get the buffer size.
+	 * @return The size of each UsbIrp's data buffer.
+	 */
+	public int getBufferSize() { return bufferSize; }
+
+	/**
+	 * Get a UsbIrp.
+	 * <p>
+	 * The UsbIrp's data is a buffer of the {@link #getBufferSize() buffer size},
+	 * and all other fields are at their defaults.
+	 * @return A DefaultUsbIrp ready for use.
+	 */
+	public DefaultUsbIrp getUsbIrp()
+	{
+		DefaultUsbIrp usbIrp = usbIrps.poll();
+
+		if (null == usbIrp)
+			usbIrp = new DefaultUsbIrp(new byte[bufferSize]);
+		else
+			pooled.remove(usbIrp);
+
+		return usbIrp;
+	}
+
+	/**
+	 * Get a UsbControlIrp.
+	 * <p>
+	 * The UsbControlIrp's data is a buffer of the {@link #getBufferSize() buffer size},
+	 * its setup packet is set to the specified values, and all other fields are at their defaults.
+	 * Note that the wLength is the data length, so the {@link javax.usb.UsbIrp#setLength(int) length}
+	 * should normally be set before submission.
+	 * @param bmRequestType The bmRequestType.
+	 * @param bRequest The bRequest.
+	 * @param wValue The wValue.
+	 * @param wIndex The wIndex.
+	 * @return A DefaultUsbControlIrp ready for use.
+	 */
+	public DefaultUsbControlIrp getUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+	{
+		DefaultUsbControlIrp usbControlIrp = usbControlIrps.poll();
+
+		if (null == usbControlIrp) {
+			usbControlIrp = new DefaultUsbControlIrp(new byte[bufferSize], 0, bufferSize, true, bmRequestType, bRequest, wValue, wIndex);
+		} else {
+			pooled.remove(usbControlIrp);
+			usbControlIrp.setSetupPacket(bmRequestType, bRequest, wValue, wIndex);
+		}
+
+		return usbControlIrp;
+	}
+
+	/**
+	 * Return a UsbIrp to the pool.
+	 * <p>
+	 * The UsbIrp is {@link javax.usb.util.DefaultUsbIrp#reset() reset}.
+	 * If its data buffer is not the {@link #getBufferSize() buffer size}, it is not an exact
+	 * DefaultUsbIrp or DefaultUsbControlIrp, or the pool is full, it is not kept.
+	 * @param usbIrp The UsbIrp.
+	 * @exception IllegalStateException If the UsbIrp is already in the pool.
+	 */
+	public void putUsbIrp(DefaultUsbIrp usbIrp) throws IllegalStateException
+	{
+		if (pooled.contains(usbIrp))
+			throw new IllegalStateException("UsbIrp is already in the pool.");
+
+		usbIrp.reset();
+		offer(usbIrp);
+	}
+
+	/**
+	 * Return a UsbIrp to the pool, if it has not been reset since the specified generation.
+	 * <p>
+	 * This {@link javax.usb.util.DefaultUsbIrp#reset(int) resets} the UsbIrp only if
+	 * its {@link javax.usb.util.DefaultUsbIrp#getGeneration() generation} is the
+	 * specified generation; if not, the UsbIrp has already been returned (or otherwise reset),
+	 * and it is not returned again.
+	 * @param usbIrp The UsbIrp.
+	 * @param generation The generation of the UsbIrp when it was gotten from the pool.
+	 * @exception IllegalStateException If the generation is stale.
+	 */
+	public void putUsbIrp(DefaultUsbIrp usbIrp, int generation) throws IllegalStateException
+	{
+		if (!usbIrp.reset(generation))
+			throw new IllegalStateException("UsbIrp generation " + generation + " is stale, current generation is " + usbIrp.getGeneration());
+
+		offer(usbIrp);
+	}
+
+	/**
+	 * Keep a reset UsbIrp, if possible.
+	 * @param usbIrp The UsbIrp.
+	 * @exception IllegalStateException If the UsbIrp is already in the pool.
+	 */
+	protected void offer(DefaultUsbIrp usbIrp) throws IllegalStateException
+	{
+		if (bufferSize != usbIrp.getData().length)
+			return;
+
+		Class<?> type = usbIrp.getClass();
+		if (DefaultUsbIrp.class != type && DefaultUsbControlIrp.class != type)
+			return;
+
+		if (!pooled.add(usbIrp))
+			throw new IllegalStateException("UsbIrp is already in the pool.");
+
+		boolean kept = false;
+		if (DefaultUsbControlIrp.class == type)
+			kept = usbControlIrps.offer((DefaultUsbControlIrp)usbIrp);
+		else
+			kept = usbIrps.offer(usbIrp);
+
+		if (!kept)
+			pooled.remove(usbIrp);
+	}
+
+	private int bufferSize = 0;
+	private BlockingQueue<DefaultUsbIrp> usbIrps = null;
+	private BlockingQueue<DefaultUsbControlIrp> usbControlIrps = null;
+	private Set<DefaultUsbIrp> pooled = ConcurrentHashMap.<DefaultUsbIrp>newKeySet();
+}
@@ -0,0 +1,277 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.usb.*;
+
+/**
+ * An AsynchronousByteChannel over a UsbPipe.
+ * <p>
+ * Each {@link #read(ByteBuffer,Object,CompletionHandler) read} or
+ * {@link #write(ByteBuffer,Object,CompletionHandler) write} is one
+ * {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) asynchronous submission} of the buffer's remaining bytes,
+ * using a {@link javax.usb.util.DefaultUsbBufferIrp DefaultUsbBufferIrp}, so
+ * {@link java.nio.ByteBuffer#isDirect() direct} buffers may be transferred without a copy.
+ * When the submission completes, the buffer's position is advanced by the number of bytes transferred,
+ * and the CompletionHandler is called on the Thread that completed the UsbIrp.
+ * No Thread is blocked waiting for the submission.
+ * <p>
+ * Reads are only allowed on an IN UsbPipe and writes only on an OUT UsbPipe.
+ * As the AsynchronousByteChannel specifies, only one read and one write may be outstanding at a time.
+ * A failed submission is reported to the CompletionHandler with its UsbException;
+ * a submission aborted by {@link #close() close} is reported with an AsynchronousCloseException.
+ * <p>
+ * The UsbPipe must be {@link javax.usb.UsbPipe#isOpen() open}.
+ * {@link #close() Closing} this aborts all submissions and closes the UsbPipe.
+ * @author Dan Streetman
+ */
+public class UsbPipeChannel implements AsynchronousByteChannel
+{
+	/**
+	 * Constructor.
+	 * @param usbPipe The UsbPipe.
+	 */
+	public UsbPipeChannel(UsbPipe usbPipe)
+	{
+		this.usbPipe = usbPipe;
+		readOperation = new Operation(readPending);
+		writeOperation = new Operation(writePending);
+	}
+
+	/**
+	 * Get the UsbPipe.
+	 * @return The UsbPipe.
+	 */
+	public UsbPipe getUsbPipe() { return usbPipe; }
+
+	/**
+	 * Read from the UsbPipe.
+	 * @param dst The buffer to read into.
+	 * @param attachment The attachment.
+	 * @param handler The CompletionHandler.
+	 * @exception NonReadableChannelException If the UsbPipe is not an IN pipe.
+	 * @exception ReadPendingException If a read is already outstanding.
+	 */
+	public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer,? super A> handler)
+	{
+		if (UsbConst.ENDPOINT_DIRECTION_IN != usbPipe.getUsbEndpoint().getDirection())
+			throw new NonReadableChannelException();
+		if (dst.isReadOnly())
+			throw new IllegalArgumentException("Read-only buffer.");
+		if (!readPending.compareAndSet(false, true))
+			throw new ReadPendingException();
+
+		readOperation.submit(dst, attachment, handler);
+	}
+
+	/**
+	 * Read from the UsbPipe.
+	 * @param dst The buffer to read into.
+	 * @return A Future for the number of bytes read.
+	 * @exception NonReadableChannelException If the UsbPipe is not an IN pipe.
+	 * @exception ReadPendingException If a read is already outstanding.
+	 */
+	public Future<Integer> read(ByteBuffer dst)
+	{
+		FutureCompletionHandler handler = new FutureCompletionHandler();
+		read(dst, null, handler);
+		return handler.completableFuture;
+	}
+
+	/**
+	 * Write to the UsbPipe.
+	 * @param src The buffer to write from.
+	 * @param attachment The attachment.
+	 * @param handler The CompletionHandler.
+	 * @exception NonWritableChannelException If the UsbPipe is not an OUT pipe.
+	 * @exception WritePendingException If a write is already outstanding.
+	 */
+	public <A> void write(ByteBuffer src, A attachment, CompletionHandler<Integer,? super A> handler)
+	{
+		if (UsbConst.ENDPOINT_DIRECTION_OUT != usbPipe.getUsbEndpoint().getDirection())
+			throw new NonWritableChannelException();
+		if (!writePending.compareAndSet(false, true))
+			throw new WritePendingException();
+
+		writeOperation.submit(src, attachment, handler);
+	}
+
+	/**
+	 * Write to the UsbPipe.
+	 * @param src The buffer to write from.
+	 * @return A Future for the number of bytes written.
+	 * @exception NonWritableChannelException If the UsbPipe is not an OUT pipe.
+	 * @exception WritePendingException If a write is already outstanding.
+	 */
+	public Future<Integer> write(ByteBuffer src)
+	{
+		FutureCompletionHandler handler = new FutureCompletionHandler();
+		write(src, null, handler);
+		return handler.completableFuture;
+	}
+
+	/**
+	 * If this is open.
+	 * @return If this is open and the UsbPipe is open.
+	 */
+	public boolean isOpen() { return !closed && usbPipe.isOpen(); }
+
+	/**
+	 * Close this.
+	 * <p>
+	 * This {@link javax.usb.UsbPipe#abortAllSubmissions() aborts all submissions},
+	 * and then {@link javax.usb.UsbPipe#close() closes} the UsbPipe.
+	 * @exception IOException If the UsbPipe could not be closed.
+	 */
+	public void close() throws IOException
+	{
+		if (closed)
+			return;
+
+		closed = true;
+
+		try {
+			if (usbPipe.isOpen()) {
+				usbPipe.abortAllSubmissions();
+				usbPipe.close();
+			}
+		} catch ( UsbException uE ) {
+			throw new IOException("Could not close UsbPipe : " + uE.getMessage(), uE);
+		}
+	}
+
+	protected UsbPipe usbPipe = null;
+	protected volatile boolean closed = false;
+
+	private AtomicBoolean readPending = new AtomicBoolean(false);
+	private AtomicBoolean writePending = new AtomicBoolean(false);
+	private Operation readOperation = null;
+	private Operation writeOperation = null;
+
+	/**
+	 * One outstanding read or write.
+	 * <p>
+	 * The DefaultUsbBufferIrp is reused for every submission.
+	 */
+	private class Operation implements UsbIrpListener
+	{
+		public Operation(AtomicBoolean pending)
+		{
+			this.pending = pending;
+			usbIrp.setUsbIrpListener(this);
+		}
+
+		public <A> void submit(ByteBuffer buffer, A attachment, CompletionHandler<Integer,? super A> handler)
+		{
+			this.buffer = buffer;
+			this.attachment = attachment;
+			this.handler = handler;
+
+			if (closed) {
+				failed(new ClosedChannelException());
+				return;
+			}
+
+			if (!buffer.hasRemaining()) {
+				completed(0);
+				return;
+			}
+
+			limit = buffer.limit();
+			usbIrp.setDataBuffer(buffer);
+			usbIrp.setActualLength(0);
+			usbIrp.setUsbException(null);
+			usbIrp.setComplete(false);
+
+			try {
+				usbPipe.asyncSubmit(usbIrp);
+			} catch ( UsbException uE ) {
+				buffer.limit(limit);
+				failed(uE);
+			} catch ( RuntimeException rE ) {
+				buffer.limit(limit);
+				failed(rE);
+			}
+		}
+
+		public void usbIrpCompleted( UsbIrp irp )
+		{
+			int position = buffer.position();
+			buffer.limit(limit);
+
+			if (irp.isUsbException()) {
+				if (closed && (irp.getUsbException() instanceof UsbAbortException))
+					failed(new AsynchronousCloseException());
+				else
+					failed(irp.getUsbException());
+			} else {
+				buffer.position(position + irp.getActualLength());
+				completed(irp.getActualLength());
+			}
+		}
+
+		private void completed(int count)
+		{
+			CompletionHandler<Integer,Object> h = handler();
+			Object a = attachment;
+			release();
+			h.completed(Integer.valueOf(count), a);
+		}
+
+		private void failed(Throwable t)
+		{
+			CompletionHandler<Integer,Object> h = handler();
+			Object a = attachment;
+			release();
+			h.failed(t, a);
+		}
+
+		/**
+		 * Get the CompletionHandler.
+		 * <p>
+		 * It was submitted with the attachment, so it accepts the attachment's type.
+		 * @return The CompletionHandler.
+		 */
+		@SuppressWarnings("unchecked")
+		private CompletionHandler<Integer,Object> handler() { return (CompletionHandler<Integer,Object>)handler; }
+
+		private void release()
+		{
+			buffer = null;
+			attachment = null;
+			handler = null;
+			pending.set(false);
+		}
+
+		private AtomicBoolean pending = null;
+		private DefaultUsbBufferIrp usbIrp = new DefaultUsbBufferIrp();
+		private ByteBuffer buffer = null;
+		private Object attachment = null;
+		private CompletionHandler<Integer,?> handler = null;
+		private int limit = 0;
+	}
+
+	/**
+	 * A CompletionHandler that completes a CompletableFuture.
+	 */
+	private static class FutureCompletionHandler implements CompletionHandler<Integer,Object>
+	{
+		public void completed(Integer result, Object attachment) { completableFuture.complete(result); }
+		public void failed(Throwable t, Object attachment) { completableFuture.completeExceptionally(t); }
+
+		public CompletableFuture<Integer> completableFuture = new CompletableFuture<Integer>();
+	}
+}
@@ -0,0 +1,312 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.*;
+
+import javax.usb.*;
+
+/**
+ * An InputStream that reads from an IN UsbPipe.
+ * <p>
+ * This keeps a ring of UsbIrps permanently {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) queued}
+ * on the UsbPipe, so the device can transfer data while the application is still processing
+ * earlier data; the bus is not left idle between reads.  Reads are served from completed UsbIrps in
+ * submission order, and each UsbIrp is resubmitted as soon as all its data has been read.
+ * <p>
+ * The UsbIrps are submitted on the first read (or {@link #available() available}), not on creation.
+ * The UsbPipe must be {@link javax.usb.UsbPipe#isOpen() open} and remain open while this is used.
+ * {@link #close() Closing} this aborts all outstanding submissions but does not close the UsbPipe.
+ * <p>
+ * A failed UsbIrp causes the read to throw an IOException whose cause is the UsbException;
+ * the remaining queued UsbIrps are not affected, and the next read continues with them.
+ * A failed submission is retried by the next read; its IOException is thrown once no
+ * submitted UsbIrps remain to be read.
+ * A zero-length transfer is not end-of-stream; this never returns end-of-stream until it is closed.
+ * <p>
+ * This is not Thread-safe.
+ * @author Dan Streetman
+ */
+public class UsbPipeInputStream extends InputStream
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * This uses a queue depth of {@link #DEFAULT_QUEUE_DEPTH DEFAULT_QUEUE_DEPTH}, and a buffer size of
+	 * {@link #DEFAULT_PACKETS_PER_BUFFER DEFAULT_PACKETS_PER_BUFFER} times the endpoint's
+	 * {@link javax.usb.UsbEndpointDescriptor#wMaxPacketSize() maximum packet size}.
+	 * @param usbPipe The IN UsbPipe.
+	 * @exception IllegalArgumentException If the UsbPipe is not an IN pipe.
+	 */
+	public UsbPipeInputStream(UsbPipe usbPipe) throws IllegalArgumentException
+	{ this(usbPipe, DEFAULT_QUEUE_DEPTH, DEFAULT_PACKETS_PER_BUFFER * getMaxPacketSize(usbPipe)); }
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * The buffer size should normally be a multiple of the endpoint's
+	 * {@link javax.usb.UsbEndpointDescriptor#wMaxPacketSize() maximum packet size};
+	 * otherwise a transfer may end with a short packet that does not fill the buffer,
+	 * or the device may send more than fits.
+	 * @param usbPipe The IN UsbPipe.
+	 * @param queueDepth The number of UsbIrps to keep queued.
+	 * @param bufferSize The size of each UsbIrp's buffer.
+	 * @exception IllegalArgumentException If the UsbPipe is not an IN pipe, or the queue depth or buffer size is not positive.
+	 */
+	public UsbPipeInputStream(UsbPipe usbPipe, int queueDepth, int bufferSize) throws IllegalArgumentException
+	{
+		if (UsbConst.ENDPOINT_DIRECTION_IN != usbPipe.getUsbEndpoint().getDirection())
+			throw new IllegalArgumentException("UsbPipe must be an IN pipe.");
+		if (0 >= queueDepth || 0 >= bufferSize)
+			throw new IllegalArgumentException("Queue depth and buffer size must be positive.");
+
+		this.usbPipe = usbPipe;
+		usbIrps = new DefaultUsbIrp[queueDepth];
+		for (int i=0; i<queueDepth; i++)
+			usbIrps[i] = new DefaultUsbIrp(new byte[bufferSize]);
+	}
+
+	/**
+	 * Get the UsbPipe.
+	 * @return The UsbPipe.
+	 */
+	public UsbPipe getUsbPipe() { return usbPipe; }
+
+	/**
+	 * Get the queue depth.
+	 * @return The number of UsbIrps kept queued.
+	 */
+	public int getQueueDepth() { return usbIrps.length; }
+
+	/**
+	 * Get the buffer size.
+	 * @return The size of each UsbIrp's buffer.
+	 */
+	public int getBufferSize() { return usbIrps[0].getData().length; }
+
+	/**
+	 * Read a byte.
+	 * <p>
+	 * This blocks until data is available.
+	 * @return The byte, or -1 if closed.
+	 * @exception IOException If the submission failed.
+	 */
+	public int read() throws IOException
+	{
+		if (!fill())
+			return -1;
+
+		DefaultUsbIrp usbIrp = usbIrps[head];
+		int b = UsbUtil.unsignedInt(usbIrp.getData()[usbIrp.getOffset() + position]);
+		position++;
+		drained();
+		return b;
+	}
+
+	/**
+	 * Read bytes.
+	 * <p>
+	 * This blocks until at least one byte is available, then reads as many bytes
+	 * as are available without blocking, up to the specified length.
+	 * @param b The byte[] to read into.
+	 * @param off The offset in the byte[].
+	 * @param len The maximum number of bytes to read.
+	 * @return The number of bytes read, or -1 if closed.
+	 * @exception IOException If the submission failed.
+	 */
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if (0 > off || 0 > len || b.length < (off + len))
+			throw new IndexOutOfBoundsException();
+		if (0 == len)
+			return 0;
+
+		if (!fill())
+			return -1;
+
+		int count = 0;
+
+		do {
+			DefaultUsbIrp usbIrp = usbIrps[head];
+			int n = Math.min(len - count, usbIrp.getActualLength() - position);
+			System.arraycopy(usbIrp.getData(), usbIrp.getOffset() + position, b, off + count, n);
+			position += n;
+			count += n;
+			drained();
+		} while (count < len && 0 < queued && usbIrps[head].isComplete() && !usbIrps[head].isUsbException());
+
+		return count;
+	}
+
+	/**
+	 * Get the number of bytes that can be read without blocking.
+	 * <p>
+	 * This is the data in all completed UsbIrps at the head of the queue.
+	 * @return The number of bytes available.
+	 * @exception IOException If no UsbIrps are submitted and the submissions failed.
+	 */
+	public int available() throws IOException
+	{
+		if (closed)
+			return 0;
+
+		refill();
+
+		int available = 0;
+
+		for (int i=0; i<queued; i++) {
+			DefaultUsbIrp usbIrp = usbIrps[(head + i) % usbIrps.length];
+			if (!usbIrp.isComplete() || usbIrp.isUsbException())
+				break;
+			available += usbIrp.getActualLength() - (0 == i ? position : 0);
+		}
+
+		return available;
+	}
+
+	/**
+	 * Close this.
+	 * <p>
+	 * This {@link javax.usb.UsbPipe#abortAllSubmissions() aborts all submissions} on the UsbPipe
+	 * if any were made.  The UsbPipe is not closed.
+	 */
+	public void close()
+	{
+		if (closed)
+			return;
+
+		closed = true;
+
+		if (0 < queued)
+			usbPipe.abortAllSubmissions();
+	}
+
+	/**
+	 * Wait until the head UsbIrp has data to read.
+	 * @return If there is data to read, false if closed.
+	 * @exception IOException If the head UsbIrp failed, or no UsbIrps are submitted and the submissions failed.
+	 */
+	protected boolean fill() throws IOException
+	{
+		while (true) {
+			if (closed)
+				return false;
+
+			refill();
+
+			DefaultUsbIrp usbIrp = usbIrps[head];
+
+			usbIrp.waitUntilComplete();
+
+			if (closed)
+				return false;
+
+			if (usbIrp.isUsbException()) {
+				UsbException uE = usbIrp.getUsbException();
+				position = 0;
+				advance();
+				throw new IOException("Submission failed : " + uE.getMessage(), uE);
+			}
+
+			if (position < usbIrp.getActualLength())
+				return true;
+
+			position = 0;
+			advance();
+		}
+	}
+
+	/**
+	 * If the head UsbIrp has been completely read, resubmit it.
+	 * <p>
+	 * A failed resubmission is retried by the next {@link #fill() fill}.
+	 */
+	protected void drained()
+	{
+		if (position < usbIrps[head].getActualLength())
+			return;
+
+		position = 0;
+		advance();
+
+		try {
+			refill();
+		} catch ( IOException ioE ) {
+			/* fill retries, and throws if nothing else is submitted */
+		}
+	}
+
+	/**
+	 * Reset the head UsbIrp, which is no longer submitted, and advance the head.
+	 */
+	protected void advance()
+	{
+		usbIrps[head].reset();
+		head = (head + 1) % usbIrps.length;
+		queued--;
+	}
+
+	/**
+	 * Submit all UsbIrps that are not submitted, in ring order after the submitted ones.
+	 * <p>
+	 * A UsbIrp counts as submitted only once its submission succeeds,
+	 * so no Thread ever waits for a UsbIrp that was not submitted.
+	 * @exception IOException If a submission failed and no UsbIrps are submitted.
+	 */
+	protected void refill() throws IOException
+	{
+		while (queued < usbIrps.length) {
+			try {
+				submit(usbIrps[(head + queued) % usbIrps.length]);
+			} catch ( IOException ioE ) {
+				if (0 == queued)
+					throw ioE;
+				return;
+			}
+
+			queued++;
+		}
+	}
+
+	/**
+	 * Submit a UsbIrp.
+	 * @param usbIrp The UsbIrp.
+	 * @exception IOException If the submission failed.
+	 */
+	protected void submit(DefaultUsbIrp usbIrp) throws IOException
+	{
+		try {
+			usbPipe.asyncSubmit(usbIrp);
+		} catch ( UsbException uE ) {
+			throw new IOException("Could not submit : " + uE.getMessage(), uE);
+		}
+	}
+
+	/**
+	 * Get the maximum packet size of a UsbPipe.
+	 * @param usbPipe The UsbPipe.
+	 * @return The maximum packet size of the UsbPipe's endpoint.
+	 */
+	protected static int getMaxPacketSize(UsbPipe usbPipe)
+	{ return UsbUtil.unsignedInt(usbPipe.getUsbEndpoint().getUsbEndpointDescriptor().wMaxPacketSize()); }
+
+	/** The default number of UsbIrps kept queued. */
+	public static final int DEFAULT_QUEUE_DEPTH = 4;
+
+	/** The default buffer size, in multiples of the maximum packet size. */
+	public static final int DEFAULT_PACKETS_PER_BUFFER = 8;
+
+	protected UsbPipe usbPipe = null;
+	protected DefaultUsbIrp[] usbIrps = null;
+	protected int head = 0;
+	protected int position = 0;
+	protected int queued = 0;
+	protected volatile boolean closed = false;
+}
@@ -0,0 +1,444 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import javax.usb.*;
+
+/**
+ * An OutputStream that writes to an OUT UsbPipe.
+ * <p>
+ * Small writes are coalesced into UsbIrp buffers whose size should be a multiple of the endpoint's
+ * {@link javax.usb.UsbEndpointDescriptor#wMaxPacketSize() maximum packet size}.
+ * A buffer is {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) submitted} when it is full, when this is
+ * {@link #flush() flushed}, or, if a flush delay is set, when the oldest unsubmitted data has waited that long.
+ * Several UsbIrps are kept in flight; a write only blocks if all UsbIrps are in flight.
+ * <p>
+ * When data is flushed (explicitly or by the flush delay) and the last transfer was a non-zero
+ * multiple of the maximum packet size, a zero-length packet is sent so the device can detect the
+ * end of the transfer; this can be {@link #setZeroLengthPacket(boolean) disabled}.
+ * <p>
+ * A failed UsbIrp is reported by the next write or flush that reuses or waits for it, as an
+ * IOException whose cause is the UsbException; the data of a failed submission is not sent.
+ * A failed submission by the flush delay is kept, and reported by the next write, flush, or close.
+ * The flush delay never waits for a UsbIrp or for a writer; if a zero-length packet would have to wait,
+ * it is sent by the next write or flush, before any new data.
+ * {@link #close() Closing} this flushes it, but does not close the UsbPipe.
+ * <p>
+ * This is Thread-safe; writes are serialized by a ReentrantLock.
+ * @author Dan Streetman
+ */
+public class UsbPipeOutputStream extends OutputStream
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * This uses a queue depth of {@link #DEFAULT_QUEUE_DEPTH DEFAULT_QUEUE_DEPTH}, a buffer size of
+	 * {@link #DEFAULT_PACKETS_PER_BUFFER DEFAULT_PACKETS_PER_BUFFER} times the endpoint's
+	 * {@link javax.usb.UsbEndpointDescriptor#wMaxPacketSize() maximum packet size}, and no flush delay.
+	 * @param usbPipe The OUT UsbPipe.
+	 * @exception IllegalArgumentException If the UsbPipe is not an OUT pipe.
+	 */
+	public UsbPipeOutputStream(UsbPipe usbPipe) throws IllegalArgumentException
+	{ this(usbPipe, DEFAULT_QUEUE_DEPTH, DEFAULT_PACKETS_PER_BUFFER * UsbPipeInputStream.getMaxPacketSize(usbPipe), 0); }
+
+	/**
+	 * Constructor.
+	 * @param usbPipe The OUT UsbPipe.
+	 * @param queueDepth The number of UsbIrps that may be in flight.
+	 * @param bufferSize The size of each UsbIrp's buffer, which should be a multiple of the maximum packet size.
+	 * @param flushDelay The maximum number of milliseconds data is kept before it is submitted, or 0 to only submit on a full buffer or flush.
+	 * @exception IllegalArgumentException If the UsbPipe is not an OUT pipe, the queue depth or buffer size is not positive, or the flush delay is negative.
+	 */
+	public UsbPipeOutputStream(UsbPipe usbPipe, int queueDepth, int bufferSize, long flushDelay) throws IllegalArgumentException
+	{
+		if (UsbConst.ENDPOINT_DIRECTION_OUT != usbPipe.getUsbEndpoint().getDirection())
+			throw new IllegalArgumentException("UsbPipe must be an OUT pipe.");
+		if (0 >= queueDepth || 0 >= bufferSize)
+			throw new IllegalArgumentException("Queue depth and buffer size must be positive.");
+		if (0 > flushDelay)
+			throw new IllegalArgumentException("Flush delay cannot be negative.");
+
+		this.usbPipe = usbPipe;
+		this.flushDelay = flushDelay;
+		maxPacketSize = UsbPipeInputStream.getMaxPacketSize(usbPipe);
+		usbIrps = new DefaultUsbIrp[queueDepth];
+		inFlight = new boolean[queueDepth];
+		for (int i=0; i<queueDepth; i++)
+			usbIrps[i] = new DefaultUsbIrp(new byte[bufferSize]);
+	}
+
+	/**
+	 * Get the UsbPipe.
+	 * @return The UsbPipe.
+	 */
+	public UsbPipe getUsbPipe() { return usbPipe; }
+
+	/**
+	 * If a zero-length packet is sent on flush.
+	 * @return If a zero-length packet is sent when flushed data ends on a packet boundary.
+	 */
+	public boolean getZeroLengthPacket() { return zeroLengthPacket; }
+
+	/**
+	 * Set if a zero-length packet is sent on flush.
+	 * <p>
+	 * The default is true.
+	 * @param zlp If a zero-length packet should be sent when flushed data ends on a packet boundary.
+	 */
+	public void setZeroLengthPacket(boolean zlp) { zeroLengthPacket = zlp; }
+
+	/**
+	 * Write a byte.
+	 * @param b The byte.
+	 * @exception IOException If closed, or a submission failed.
+	 */
+	public void write(int b) throws IOException
+	{
+		lock.lock();
+		try {
+			DefaultUsbIrp usbIrp = current();
+			usbIrp.getData()[count++] = (byte)b;
+			written(usbIrp);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Write bytes.
+	 * @param b The byte[].
+	 * @param off The offset in the byte[].
+	 * @param len The number of bytes.
+	 * @exception IOException If closed, or a submission failed.
+	 */
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if (0 > off || 0 > len || b.length < (off + len))
+			throw new IndexOutOfBoundsException();
+
+		lock.lock();
+		try {
+			while (0 < len) {
+				DefaultUsbIrp usbIrp = current();
+				int n = Math.min(len, usbIrp.getData().length - count);
+				System.arraycopy(b, off, usbIrp.getData(), count, n);
+				count += n;
+				off += n;
+				len -= n;
+				written(usbIrp);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Flush.
+	 * <p>
+	 * This submits any buffered data, sends a zero-length packet if appropriate,
+	 * and waits until all submissions complete.
+	 * @exception IOException If closed, or a submission failed.
+	 */
+	public void flush() throws IOException
+	{
+		lock.lock();
+		try {
+			checkClosed();
+
+			IOException ioE = failure;
+			failure = null;
+
+			try {
+				submitPending(true);
+			} catch ( IOException e ) {
+				if (null == ioE)
+					ioE = e;
+			}
+
+			for (int i=0; i<usbIrps.length; i++) {
+				try {
+					complete(i);
+				} catch ( IOException e ) {
+					if (null == ioE)
+						ioE = e;
+				}
+			}
+			if (null != ioE)
+				throw ioE;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Close this.
+	 * <p>
+	 * This {@link #flush() flushes}; the UsbPipe is not closed.
+	 * @exception IOException If a submission failed.
+	 */
+	public void close() throws IOException
+	{
+		lock.lock();
+		try {
+			if (closed)
+				return;
+			try {
+				flush();
+			} finally {
+				closed = true;
+				cancelFlushTask();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the UsbIrp being filled, waiting for it if it is in flight.
+	 * @return The current UsbIrp.
+	 * @exception IOException If closed, the UsbIrp's last submission failed, or a delayed flush failed.
+	 */
+	protected DefaultUsbIrp current() throws IOException
+	{
+		checkClosed();
+		checkFailure();
+
+		if (0 == count) {
+			complete(current);
+			usbIrps[current].reset();
+
+			if (zeroLengthPacketOwed) {
+				zeroLengthPacketOwed = false;
+				submitCurrent();
+				complete(current);
+				usbIrps[current].reset();
+			}
+		}
+
+		return usbIrps[current];
+	}
+
+	/**
+	 * Handle bytes written into the current UsbIrp.
+	 * @param usbIrp The current UsbIrp.
+	 * @exception IOException If the submission failed.
+	 */
+	protected void written(DefaultUsbIrp usbIrp) throws IOException
+	{
+		if (count == usbIrp.getData().length) {
+			cancelFlushTask();
+			submitCurrent();
+		} else if (0 < flushDelay && null == flushTask) {
+			flushTask = new FlushTask();
+			flushTask.schedule();
+		}
+	}
+
+	/**
+	 * Submit any buffered data, and a zero-length packet if appropriate, without waiting for the submissions.
+	 * <p>
+	 * The zero-length packet needs the next UsbIrp; if that is still in flight, this either waits for it
+	 * or, if not allowed to block, leaves the zero-length packet owed; an owed zero-length packet
+	 * is submitted before any new data.
+	 * @param block If this may wait for the next UsbIrp.
+	 * @return If everything was submitted; false if the zero-length packet is still owed.
+	 * @exception IOException If the submission failed.
+	 */
+	protected boolean submitPending(boolean block) throws IOException
+	{
+		cancelFlushTask();
+
+		if (0 < count)
+			submitCurrent();
+
+		if (zeroLengthPacket && 0 < lastLength && 0 == (lastLength % maxPacketSize))
+			zeroLengthPacketOwed = true;
+
+		if (zeroLengthPacketOwed) {
+			if (!block && inFlight[current] && !usbIrps[current].isComplete())
+				return false;
+
+			current();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Submit the current UsbIrp with the buffered data, and advance to the next UsbIrp.
+	 * @exception IOException If the submission failed.
+	 */
+	protected void submitCurrent() throws IOException
+	{
+		DefaultUsbIrp usbIrp = usbIrps[current];
+		usbIrp.setLength(count);
+
+		try {
+			usbPipe.asyncSubmit(usbIrp);
+		} catch ( UsbException uE ) {
+			count = 0;
+			throw new IOException("Could not submit : " + uE.getMessage(), uE);
+		}
+
+		inFlight[current] = true;
+		lastLength = count;
+		count = 0;
+		current = (current + 1) % usbIrps.length;
+	}
+
+	/**
+	 * Wait for the specified UsbIrp, if it is in flight.
+	 * @param index The index of the UsbIrp.
+	 * @exception IOException If the UsbIrp failed.
+	 */
+	protected void complete(int index) throws IOException
+	{
+		if (!inFlight[index])
+			return;
+
+		DefaultUsbIrp usbIrp = usbIrps[index];
+		usbIrp.waitUntilComplete();
+		inFlight[index] = false;
+
+		if (usbIrp.isUsbException())
+			throw new IOException("Submission failed : " + usbIrp.getUsbException().getMessage(), usbIrp.getUsbException());
+	}
+
+	/** Cancel the scheduled flush, if any. */
+	protected void cancelFlushTask()
+	{
+		if (null != flushTask) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+	}
+
+	/**
+	 * Check if this is closed.
+	 * @exception IOException If this is closed.
+	 */
+	protected void checkClosed() throws IOException
+	{
+		if (closed)
+			throw new IOException("UsbPipeOutputStream is closed.");
+	}
+
+	/**
+	 * Report, and forget, the failure of a delayed flush.
+	 * @exception IOException If a delayed flush failed.
+	 */
+	protected void checkFailure() throws IOException
+	{
+		IOException ioE = failure;
+
+		if (null != ioE) {
+			failure = null;
+			throw ioE;
+		}
+	}
+
+	/**
+	 * Get the shared scheduler used for delayed flushes.
+	 * @return The scheduler.
+	 */
+	protected static synchronized ScheduledExecutorService getScheduler()
+	{
+		if (null == scheduler) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable r)
+					{
+						Thread thread = new Thread(r, "UsbPipeOutputStream flush");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		}
+
+		return scheduler;
+	}
+
+	/** The default number of UsbIrps that may be in flight. */
+	public static final int DEFAULT_QUEUE_DEPTH = 4;
+
+	/** The default buffer size, in multiples of the maximum packet size. */
+	public static final int DEFAULT_PACKETS_PER_BUFFER = 8;
+
+	protected UsbPipe usbPipe = null;
+	protected DefaultUsbIrp[] usbIrps = null;
+	protected boolean[] inFlight = null;
+	protected int current = 0;
+	protected int count = 0;
+	protected int lastLength = 0;
+	protected int maxPacketSize = 0;
+	protected long flushDelay = 0;
+	protected boolean zeroLengthPacket = true;
+	protected boolean zeroLengthPacketOwed = false;
+	protected boolean closed = false;
+	protected FlushTask flushTask = null;
+	protected IOException failure = null;
+	protected ReentrantLock lock = new ReentrantLock();
+
+	private static ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Submits pending data after the flush delay.
+	 * <p>
+	 * This runs on the shared scheduler, so it never waits: if a writer holds the lock,
+	 * or the zero-length packet would have to wait for a UsbIrp, it is rescheduled.
+	 */
+	protected class FlushTask implements Runnable
+	{
+		public void run()
+		{
+			if (cancelled)
+				return;
+
+			if (!lock.tryLock()) {
+				schedule();
+				return;
+			}
+
+			try {
+				if (closed || this != flushTask)
+					return;
+				flushTask = null;
+				if (!submitPending(false)) {
+					flushTask = this;
+					schedule();
+				}
+			} catch ( IOException ioE ) {
+				if (null == failure)
+					failure = ioE;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/** Schedule this after the flush delay. */
+		public void schedule() { future = getScheduler().schedule(this, flushDelay, TimeUnit.MILLISECONDS); }
+
+		/** Cancel this. */
+		public void cancel()
+		{
+			cancelled = true;
+
+			ScheduledFuture<?> scheduled = future;
+			if (null != scheduled)
+				scheduled.cancel(false);
+		}
+
+		private volatile ScheduledFuture<?> future = null;
+		private volatile boolean cancelled = false;
+	}
+}
@@ -0,0 +1,264 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.usb.*;
+
+/**
+ * A Flow.Publisher of the data from an IN UsbPipe.
+ * <p>
+ * Each item is the data from one UsbIrp, as a ByteBuffer whose remaining bytes are the transferred data.
+ * The subscriber owns each ByteBuffer; it is never reused.
+ * <p>
+ * The subscriber's {@link java.util.concurrent.Flow.Subscription#request(long) demand} directly controls
+ * how many UsbIrps are {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) submitted}:
+ * one UsbIrp is submitted per requested item, and no more than the queue depth are in flight.
+ * A slow subscriber therefore stops the UsbPipe from reading, instead of data being buffered
+ * without bound, and memory use is limited to the queue depth times the buffer size
+ * plus the items the subscriber has not released.
+ * <p>
+ * Items are delivered in submission order, on the Thread that completed a UsbIrp or called
+ * {@link java.util.concurrent.Flow.Subscription#request(long) request}.
+ * The stream has no natural end, so onComplete is never called; a failed submission
+ * calls onError with the UsbException and ends the subscription.
+ * Only one subscriber may be subscribed at a time.
+ * {@link java.util.concurrent.Flow.Subscription#cancel() Cancelling} the subscription
+ * {@link javax.usb.UsbPipe#abortAllSubmissions() aborts all submissions} on the UsbPipe.
+ * <p>
+ * The UsbPipe must be {@link javax.usb.UsbPipe#isOpen() open} and remain open while subscribed.
+ * @author Dan Streetman
+ */
+public class UsbPipePublisher implements Flow.Publisher<ByteBuffer>
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * This uses a queue depth of {@link javax.usb.util.UsbPipeInputStream#DEFAULT_QUEUE_DEPTH DEFAULT_QUEUE_DEPTH},
+	 * and a buffer size of {@link javax.usb.util.UsbPipeInputStream#DEFAULT_PACKETS_PER_BUFFER DEFAULT_PACKETS_PER_BUFFER}
+	 * times the endpoint's {@link javax.usb.UsbEndpointDescriptor#wMaxPacketSize() maximum packet size}.
+	 * @param usbPipe The IN UsbPipe.
+	 * @exception IllegalArgumentException If the UsbPipe is not an IN pipe.
+	 */
+	public UsbPipePublisher(UsbPipe usbPipe) throws IllegalArgumentException
+	{
+		this(usbPipe, UsbPipeInputStream.DEFAULT_QUEUE_DEPTH,
+			UsbPipeInputStream.DEFAULT_PACKETS_PER_BUFFER * UsbPipeInputStream.getMaxPacketSize(usbPipe));
+	}
+
+	/**
+	 * Constructor.
+	 * @param usbPipe The IN UsbPipe.
+	 * @param queueDepth The maximum number of UsbIrps in flight.
+	 * @param bufferSize The size of each UsbIrp's buffer, which should be a multiple of the maximum packet size.
+	 * @exception IllegalArgumentException If the UsbPipe is not an IN pipe, or the queue depth or buffer size is not positive.
+	 */
+	public UsbPipePublisher(UsbPipe usbPipe, int queueDepth, int bufferSize) throws IllegalArgumentException
+	{
+		if (UsbConst.ENDPOINT_DIRECTION_IN != usbPipe.getUsbEndpoint().getDirection())
+			throw new IllegalArgumentException("UsbPipe must be an IN pipe.");
+		if (0 >= queueDepth || 0 >= bufferSize)
+			throw new IllegalArgumentException("Queue depth and buffer size must be positive.");
+
+		this.usbPipe = usbPipe;
+		this.queueDepth = queueDepth;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Get the UsbPipe.
+	 * @return The UsbPipe.
+	 */
+	public UsbPipe getUsbPipe() { return usbPipe; }
+
+	/**
+	 * Get the queue depth.
+	 * @return The maximum number of UsbIrps in flight.
+	 */
+	public int getQueueDepth() { return queueDepth; }
+
+	/**
+	 * Get the buffer size.
+	 * @return The size of each UsbIrp's buffer.
+	 */
+	public int getBufferSize() { return bufferSize; }
+
+	/**
+	 * Subscribe.
+	 * <p>
+	 * If there is already a subscriber, the new subscriber's onError is called with an IllegalStateException.
+	 * @param subscriber The Flow.Subscriber.
+	 * @exception NullPointerException If the subscriber is null.
+	 */
+	public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber)
+	{
+		if (null == subscriber)
+			throw new NullPointerException("Subscriber cannot be null.");
+
+		PipeSubscription subscription = new PipeSubscription(subscriber);
+
+		if (!current.compareAndSet(null, subscription)) {
+			subscription.cancelled = true;
+			subscriber.onSubscribe(subscription);
+			subscriber.onError(new IllegalStateException("UsbPipePublisher already has a subscriber."));
+			return;
+		}
+
+		subscriber.onSubscribe(subscription);
+	}
+
+	protected UsbPipe usbPipe = null;
+	protected int queueDepth = 0;
+	protected int bufferSize = 0;
+
+	private AtomicReference<PipeSubscription> current = new AtomicReference<PipeSubscription>();
+
+	/**
+	 * The subscription of one subscriber.
+	 * <p>
+	 * All submissions and signals are made in drain, which only one Thread runs at a time.
+	 */
+	private class PipeSubscription implements Flow.Subscription, UsbIrpListener
+	{
+		public PipeSubscription(Flow.Subscriber<? super ByteBuffer> subscriber)
+		{
+			this.subscriber = subscriber;
+			usbIrps = new DefaultUsbIrp[queueDepth];
+			for (int i=0; i<queueDepth; i++)
+				usbIrps[i] = new DefaultUsbIrp();
+		}
+
+		public void request(long n)
+		{
+			if (0 >= n) {
+				error = new IllegalArgumentException("Request must be positive, not " + n);
+				drain();
+				return;
+			}
+
+			long d;
+			do {
+				d = demand.get();
+			} while (!demand.compareAndSet(d, (Long.MAX_VALUE - d) < n ? Long.MAX_VALUE : (d + n)));
+
+			drain();
+		}
+
+		public void cancel()
+		{
+			if (cancelled)
+				return;
+
+			cancelled = true;
+			if (release())
+				usbPipe.abortAllSubmissions();
+		}
+
+		public void usbIrpCompleted( UsbIrp usbIrp ) { drain(); }
+
+		/**
+		 * Deliver completed UsbIrps in order, and submit UsbIrps for unsatisfied demand.
+		 */
+		private void drain()
+		{
+			if (0 != wip.getAndIncrement())
+				return;
+
+			int missed = 1;
+
+			while (true) {
+				if (cancelled)
+					return;
+
+				if (null != error) {
+					terminate(error);
+					return;
+				}
+
+				while (head < tail) {
+					DefaultUsbIrp usbIrp = usbIrps[(int)(head % queueDepth)];
+
+					if (!usbIrp.isComplete())
+						break;
+
+					if (usbIrp.isUsbException()) {
+						terminate(usbIrp.getUsbException());
+						return;
+					}
+
+					ByteBuffer buffer = ByteBuffer.wrap(usbIrp.getData(), usbIrp.getOffset(), usbIrp.getActualLength());
+					head++;
+					subscriber.onNext(buffer);
+
+					if (cancelled)
+						return;
+				}
+
+				while ((tail - head) < queueDepth && 0 < demand.get()) {
+					if (Long.MAX_VALUE != demand.get())
+						demand.decrementAndGet();
+
+					DefaultUsbIrp usbIrp = usbIrps[(int)(tail % queueDepth)];
+					usbIrp.reset();
+					usbIrp.setData(new byte[bufferSize]);
+					usbIrp.setUsbIrpListener(this);
+					tail++;
+
+					try {
+						usbPipe.asyncSubmit(usbIrp);
+					} catch ( UsbException uE ) {
+						terminate(uE);
+						return;
+					} catch ( RuntimeException rE ) {
+						terminate(rE);
+						return;
+					}
+				}
+
+				missed = wip.addAndGet(-missed);
+				if (0 == missed)
+					break;
+			}
+		}
+
+		/**
+		 * End this subscription with an error.
+		 * @param t The error.
+		 */
+		private void terminate(Throwable t)
+		{
+			cancelled = true;
+			if (release() && head < tail)
+				usbPipe.abortAllSubmissions();
+			subscriber.onError(t);
+		}
+
+		/**
+		 * Allow another subscriber.
+		 * <p>
+		 * Only the current subscription may abort submissions on the UsbPipe;
+		 * a rejected subscription never submitted anything.
+		 * @return If this was the current subscription.
+		 */
+		private boolean release() { return current.compareAndSet(this, null); }
+
+		private Flow.Subscriber<? super ByteBuffer> subscriber = null;
+		private DefaultUsbIrp[] usbIrps = null;
+		private long head = 0;
+		private long tail = 0;
+		private volatile boolean cancelled = false;
+		private volatile Throwable error = null;
+		private AtomicLong demand = new AtomicLong(0);
+		private AtomicInteger wip = new AtomicInteger(0);
+	}
+}
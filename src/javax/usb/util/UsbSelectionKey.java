@@ -0,0 +1,285 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import javax.usb.*;
+import javax.usb.event.*;
+
+/**
+ * The registration of a UsbPipe with a {@link javax.usb.util.UsbSelector UsbSelector}.
+ * <p>
+ * This is created by {@link javax.usb.util.UsbSelector#register(UsbPipe,int,Object) registering} a UsbPipe.
+ * It listens to the UsbPipe; each UsbPipeEvent that matches the {@link #interestOps() interest set}
+ * is queued on this key, and the key is added to its UsbSelector's ready queue.
+ * After {@link javax.usb.util.UsbSelector#select() selection}, the {@link #readyOps() ready set}
+ * indicates which operations completed, and the queued events can be retrieved with
+ * {@link #pollUsbPipeEvent() pollUsbPipeEvent}.
+ * <p>
+ * A {@link javax.usb.event.UsbPipeDataEvent UsbPipeDataEvent} on an IN pipe is a {@link #OP_READ read}
+ * completion, on an OUT pipe it is a {@link #OP_WRITE write} completion.
+ * A {@link javax.usb.event.UsbPipeErrorEvent UsbPipeErrorEvent} is an {@link #OP_ERROR error}.
+ * Events that do not match the interest set are discarded.
+ * <p>
+ * The number of queued events is bounded; if the queue is full, the oldest event is discarded to make room,
+ * and {@link #discardedEventCount() counted}.  The ready set is not affected by discarded events.
+ * @author Dan Streetman
+ */
+public class UsbSelectionKey implements UsbPipeListener
+{
+	/**
+	 * Constructor.
+	 * @param usbSelector The UsbSelector.
+	 * @param usbPipe The UsbPipe.
+	 * @param ops The interest set.
+	 * @param attachment The attachment.
+	 * @param eventQueueSize The maximum number of queued events.
+	 * @exception IllegalArgumentException If the interest set contains an unknown operation, or the event queue size is not positive.
+	 */
+	UsbSelectionKey(UsbSelector usbSelector, UsbPipe usbPipe, int ops, Object attachment, int eventQueueSize) throws IllegalArgumentException
+	{
+		if (0 >= eventQueueSize)
+			throw new IllegalArgumentException("Event queue size must be positive.");
+
+		events = new ArrayBlockingQueue<UsbPipeEvent>(eventQueueSize);
+		this.usbSelector = usbSelector;
+		this.usbPipe = usbPipe;
+		this.interestOps = checkOps(ops);
+		this.attachment = attachment;
+		readOp = UsbConst.ENDPOINT_DIRECTION_IN == usbPipe.getUsbEndpoint().getDirection() ? OP_READ : OP_WRITE;
+	}
+
+	/**
+	 * Get the UsbPipe.
+	 * @return The UsbPipe.
+	 */
+	public UsbPipe usbPipe() { return usbPipe; }
+
+	/**
+	 * Get the UsbSelector.
+	 * @return The UsbSelector.
+	 */
+	public UsbSelector usbSelector() { return usbSelector; }
+
+	/**
+	 * Get the interest set.
+	 * @return The interest set.
+	 */
+	public int interestOps() { return interestOps; }
+
+	/**
+	 * Set the interest set.
+	 * <p>
+	 * This only affects events that occur after it is set.
+	 * @param ops The interest set.
+	 * @return This.
+	 * @exception IllegalArgumentException If the interest set contains an unknown operation.
+	 * @exception IllegalStateException If this key is cancelled.
+	 */
+	public UsbSelectionKey interestOps(int ops) throws IllegalArgumentException,IllegalStateException
+	{
+		checkValid();
+		interestOps = checkOps(ops);
+		return this;
+	}
+
+	/**
+	 * Get the ready set.
+	 * <p>
+	 * This is updated by {@link javax.usb.util.UsbSelector#select() selection}.
+	 * @return The ready set.
+	 */
+	public int readyOps() { return readyOps; }
+
+	/**
+	 * If a read completed.
+	 * @return If the ready set contains {@link #OP_READ OP_READ}.
+	 */
+	public boolean isReadable() { return 0 != (readyOps & OP_READ); }
+
+	/**
+	 * If a write completed.
+	 * @return If the ready set contains {@link #OP_WRITE OP_WRITE}.
+	 */
+	public boolean isWritable() { return 0 != (readyOps & OP_WRITE); }
+
+	/**
+	 * If an error occurred.
+	 * @return If the ready set contains {@link #OP_ERROR OP_ERROR}.
+	 */
+	public boolean isError() { return 0 != (readyOps & OP_ERROR); }
+
+	/**
+	 * Get the attachment.
+	 * @return The attachment.
+	 */
+	public Object attachment() { return attachment; }
+
+	/**
+	 * Set the attachment.
+	 * @param ob The new attachment.
+	 * @return The previous attachment.
+	 */
+	public Object attach(Object ob)
+	{
+		Object old = attachment;
+		attachment = ob;
+		return old;
+	}
+
+	/**
+	 * Get the next queued event.
+	 * <p>
+	 * Events are queued in the order the UsbPipe delivered them.
+	 * @return The next UsbPipeEvent, or null if there are none.
+	 */
+	public UsbPipeEvent pollUsbPipeEvent() { return events.poll(); }
+
+	/**
+	 * Get the number of events discarded because the event queue was full.
+	 * @return The number of discarded events.
+	 */
+	public long discardedEventCount() { return discardedEvents.get(); }
+
+	/**
+	 * If this key is valid.
+	 * @return If this key has not been cancelled and its UsbSelector is open.
+	 */
+	public boolean isValid() { return valid; }
+
+	/**
+	 * Cancel this key.
+	 * <p>
+	 * This stops listening to the UsbPipe and removes this from the UsbSelector.
+	 * Queued events are discarded.
+	 */
+	public void cancel()
+	{
+		if (!valid)
+			return;
+
+		valid = false;
+		usbPipe.removeUsbPipeListener(this);
+		usbSelector.cancelled(this);
+		events.clear();
+	}
+
+	/**
+	 * An error occurred.
+	 * @param event The UsbPipeErrorEvent.
+	 */
+	public void errorEventOccurred( UsbPipeErrorEvent event ) { occurred(event, OP_ERROR); }
+
+	/**
+	 * Data was transferred.
+	 * @param event The UsbPipeDataEvent.
+	 */
+	public void dataEventOccurred( UsbPipeDataEvent event ) { occurred(event, readOp); }
+
+	/**
+	 * Queue an event, and make this key ready.
+	 * @param event The UsbPipeEvent.
+	 * @param op The operation.
+	 */
+	protected void occurred(UsbPipeEvent event, int op)
+	{
+		if (!valid || 0 == (interestOps & op))
+			return;
+
+		while (!events.offer(event))
+			if (null != events.poll())
+				discardedEvents.incrementAndGet();
+
+		int ops;
+		do {
+			ops = pendingOps.get();
+		} while (!pendingOps.compareAndSet(ops, ops | op));
+
+		if (0 == ops)
+			usbSelector.ready(this);
+	}
+
+	/**
+	 * Update the ready set from the pending operations.
+	 * <p>
+	 * This is called by the selecting Thread.
+	 * @param selected If this key is already in the selected-key set.
+	 * @return If the ready set changed.
+	 */
+	boolean select(boolean selected)
+	{
+		int ops = pendingOps.getAndSet(0) & interestOps;
+
+		if (0 == ops)
+			return false;
+
+		int old = readyOps;
+		readyOps = selected ? (old | ops) : ops;
+		return !selected || old != readyOps;
+	}
+
+	/** Mark this invalid without unregistering it from the UsbSelector. */
+	void invalidate()
+	{
+		valid = false;
+		usbPipe.removeUsbPipeListener(this);
+		events.clear();
+	}
+
+	/**
+	 * Check this is valid.
+	 * @exception IllegalStateException If this is cancelled.
+	 */
+	protected void checkValid() throws IllegalStateException
+	{
+		if (!valid)
+			throw new IllegalStateException("UsbSelectionKey is cancelled.");
+	}
+
+	/**
+	 * Check an interest set.
+	 * @param ops The interest set.
+	 * @return The interest set.
+	 * @exception IllegalArgumentException If the interest set contains an unknown operation.
+	 */
+	protected static int checkOps(int ops) throws IllegalArgumentException
+	{
+		if (0 != (ops & ~(OP_READ | OP_WRITE | OP_ERROR)))
+			throw new IllegalArgumentException("Unknown operation in " + ops);
+
+		return ops;
+	}
+
+	/** Read completion; a UsbPipeDataEvent on an IN pipe. */
+	public static final int OP_READ = 0x01;
+
+	/** Write completion; a UsbPipeDataEvent on an OUT pipe. */
+	public static final int OP_WRITE = 0x02;
+
+	/** Error; a UsbPipeErrorEvent. */
+	public static final int OP_ERROR = 0x04;
+
+	/** The default maximum number of queued events. */
+	public static final int DEFAULT_EVENT_QUEUE_SIZE = 64;
+
+	protected UsbSelector usbSelector = null;
+	protected UsbPipe usbPipe = null;
+	protected volatile int interestOps = 0;
+	protected volatile int readyOps = 0;
+	protected volatile Object attachment = null;
+	protected volatile boolean valid = true;
+
+	private int readOp = 0;
+	private AtomicInteger pendingOps = new AtomicInteger(0);
+	private AtomicLong discardedEvents = new AtomicLong(0);
+	private ArrayBlockingQueue<UsbPipeEvent> events = null;
+}
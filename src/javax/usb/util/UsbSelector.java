@@ -0,0 +1,285 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import javax.usb.*;
+
+/**
+ * A multiplexor of UsbPipe completions.
+ * <p>
+ * This allows one Thread to handle many UsbPipes, instead of one Thread blocked in
+ * {@link javax.usb.UsbPipe#syncSubmit(UsbIrp) syncSubmit} or
+ * {@link javax.usb.UsbIrp#waitUntilComplete() waitUntilComplete} per UsbPipe.
+ * UsbPipes are {@link #register(UsbPipe,int,Object) registered} with an interest set of
+ * {@link javax.usb.util.UsbSelectionKey#OP_READ read completion},
+ * {@link javax.usb.util.UsbSelectionKey#OP_WRITE write completion}, and/or
+ * {@link javax.usb.util.UsbSelectionKey#OP_ERROR error};
+ * submissions are made {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) asynchronously},
+ * and the completions, delivered through the UsbPipe's {@link javax.usb.event.UsbPipeListener UsbPipeListener}
+ * events, are collected into a ready queue.
+ * The selecting Thread calls {@link #select() select}, which blocks until at least one key is ready,
+ * and then handles each key in the {@link #selectedKeys() selected-key set}.
+ * <p>
+ * As with {@link java.nio.channels.Selector Selector}, keys are not removed from the selected-key set
+ * by selection; the application must remove each key it handles.
+ * Cancelled keys are removed from the selected-key set by the next selection.
+ * The selected-key set must only be used by the selecting Thread.
+ * Registration, cancellation, and {@link #wakeup() wakeup} may be done from any Thread.
+ * @author Dan Streetman
+ */
+public class UsbSelector
+{
+	/** Constructor. */
+	public UsbSelector() { }
+
+	/**
+	 * Register a UsbPipe.
+	 * <p>
+	 * The UsbPipe may be registered with multiple UsbSelectors, or multiple times with one UsbSelector;
+	 * each registration is a separate key.
+	 * <p>
+	 * The key queues up to {@link javax.usb.util.UsbSelectionKey#DEFAULT_EVENT_QUEUE_SIZE DEFAULT_EVENT_QUEUE_SIZE} events.
+	 * @param usbPipe The UsbPipe.
+	 * @param ops The interest set.
+	 * @param attachment The attachment, which may be null.
+	 * @return The UsbSelectionKey.
+	 * @exception IllegalArgumentException If the interest set contains an unknown operation.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	public UsbSelectionKey register(UsbPipe usbPipe, int ops, Object attachment) throws IllegalArgumentException,IllegalStateException
+	{ return register(usbPipe, ops, attachment, UsbSelectionKey.DEFAULT_EVENT_QUEUE_SIZE); }
+
+	/**
+	 * Register a UsbPipe.
+	 * <p>
+	 * This is the same as {@link #register(UsbPipe,int,Object) register}, with the specified number of
+	 * events the key may queue.
+	 * @param usbPipe The UsbPipe.
+	 * @param ops The interest set.
+	 * @param attachment The attachment, which may be null.
+	 * @param eventQueueSize The maximum number of events queued on the key.
+	 * @return The UsbSelectionKey.
+	 * @exception IllegalArgumentException If the interest set contains an unknown operation, or the event queue size is not positive.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	public UsbSelectionKey register(UsbPipe usbPipe, int ops, Object attachment, int eventQueueSize) throws IllegalArgumentException,IllegalStateException
+	{
+		checkOpen();
+
+		UsbSelectionKey key = new UsbSelectionKey(this, usbPipe, ops, attachment, eventQueueSize);
+		keys.add(key);
+		usbPipe.addUsbPipeListener(key);
+
+		if (closed)
+			key.invalidate();
+
+		return key;
+	}
+
+	/**
+	 * Get the registered keys.
+	 * @return An unmodifiable Set of the valid UsbSelectionKeys.
+	 */
+	public Set<UsbSelectionKey> keys() { return Collections.unmodifiableSet(keys); }
+
+	/**
+	 * Get the selected-key set.
+	 * <p>
+	 * Keys may be removed from this Set, but not added.
+	 * @return The selected UsbSelectionKeys.
+	 */
+	public Set<UsbSelectionKey> selectedKeys() { return selectedKeysView; }
+
+	/**
+	 * Select ready keys, blocking until at least one is ready.
+	 * <p>
+	 * This also returns if {@link #wakeup() woken up}, interrupted, or closed.
+	 * @return The number of keys whose ready set was updated.
+	 */
+	public int select() { return select(0); }
+
+	/**
+	 * Select ready keys, blocking until at least one is ready or the timeout expires.
+	 * <p>
+	 * This also returns if {@link #wakeup() woken up}, interrupted, or closed.
+	 * @param timeout The maximum number of milliseconds to wait, or 0 to wait indefinitely.
+	 * @return The number of keys whose ready set was updated.
+	 * @exception IllegalArgumentException If the timeout is negative.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	public int select(long timeout) throws IllegalArgumentException,IllegalStateException
+	{
+		if (0 > timeout)
+			throw new IllegalArgumentException("Timeout cannot be negative.");
+
+		checkOpen();
+		removeCancelled();
+
+		Object first = null;
+
+		try {
+			if (0 == timeout)
+				first = readyQueue.take();
+			else
+				first = readyQueue.poll(timeout, TimeUnit.MILLISECONDS);
+		} catch ( InterruptedException iE ) {
+			Thread.currentThread().interrupt();
+		}
+
+		return selected(first);
+	}
+
+	/**
+	 * Select ready keys without blocking.
+	 * @return The number of keys whose ready set was updated.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	public int selectNow() throws IllegalStateException
+	{
+		checkOpen();
+		removeCancelled();
+
+		return selected(readyQueue.poll());
+	}
+
+	/**
+	 * Wake up the selecting Thread.
+	 * <p>
+	 * If no Thread is selecting, the next selection returns immediately.
+	 * @return This.
+	 */
+	public UsbSelector wakeup()
+	{
+		readyQueue.offer(WAKEUP);
+		return this;
+	}
+
+	/**
+	 * If this is open.
+	 * @return If this is open.
+	 */
+	public boolean isOpen() { return !closed; }
+
+	/**
+	 * Close this.
+	 * <p>
+	 * All keys are invalidated and stop listening to their UsbPipes, and a selecting Thread is woken up.
+	 * The UsbPipes are not affected.
+	 */
+	public void close()
+	{
+		if (closed)
+			return;
+
+		closed = true;
+
+		Iterator<UsbSelectionKey> iterator = keys.iterator();
+		while (iterator.hasNext())
+			iterator.next().invalidate();
+
+		keys.clear();
+		readyQueue.clear();
+		wakeup();
+	}
+
+	/**
+	 * Add the first ready key, and all other ready keys, to the selected-key set.
+	 * @param first The first ready key, which may be null or the wakeup marker.
+	 * @return The number of keys whose ready set was updated.
+	 */
+	protected int selected(Object first)
+	{
+		if (null == first)
+			return 0;
+
+		List<Object> ready = new ArrayList<Object>();
+		ready.add(first);
+		readyQueue.drainTo(ready);
+
+		int count = 0;
+
+		for (int i=0; i<ready.size(); i++) {
+			if (WAKEUP == ready.get(i))
+				continue;
+
+			UsbSelectionKey key = (UsbSelectionKey)ready.get(i);
+
+			if (!key.isValid())
+				continue;
+
+			boolean selected = selectedKeys.contains(key);
+			if (key.select(selected)) {
+				selectedKeys.add(key);
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/** Remove cancelled keys from the selected-key set. */
+	protected void removeCancelled()
+	{
+		Iterator<UsbSelectionKey> iterator = selectedKeys.iterator();
+		while (iterator.hasNext())
+			if (!iterator.next().isValid())
+				iterator.remove();
+	}
+
+	/**
+	 * Queue a ready key.
+	 * @param key The UsbSelectionKey.
+	 */
+	void ready(UsbSelectionKey key) { readyQueue.offer(key); }
+
+	/**
+	 * Remove a cancelled key.
+	 * @param key The UsbSelectionKey.
+	 */
+	void cancelled(UsbSelectionKey key) { keys.remove(key); }
+
+	/**
+	 * Check this is open.
+	 * @exception IllegalStateException If this is closed.
+	 */
+	protected void checkOpen() throws IllegalStateException
+	{
+		if (closed)
+			throw new IllegalStateException("UsbSelector is closed.");
+	}
+
+	protected volatile boolean closed = false;
+
+	private Set<UsbSelectionKey> keys = Collections.newSetFromMap(new ConcurrentHashMap<UsbSelectionKey,Boolean>());
+	private Set<UsbSelectionKey> selectedKeys = new HashSet<UsbSelectionKey>();
+	private Set<UsbSelectionKey> selectedKeysView = new UngrowableSet<UsbSelectionKey>(selectedKeys);
+	private LinkedBlockingQueue<Object> readyQueue = new LinkedBlockingQueue<Object>();
+
+	private static final Object WAKEUP = new Object();
+
+	/**
+	 * A Set that allows removal but not addition.
+	 */
+	private static class UngrowableSet<E> extends AbstractSet<E>
+	{
+		public UngrowableSet(Set<E> set) { this.set = set; }
+
+		public Iterator<E> iterator() { return set.iterator(); }
+		public int size() { return set.size(); }
+		public boolean contains(Object o) { return set.contains(o); }
+		public boolean remove(Object o) { return set.remove(o); }
+		public void clear() { set.clear(); }
+
+		private Set<E> set = null;
+	}
+}
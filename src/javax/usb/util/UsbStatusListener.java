@@ -0,0 +1,49 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.EventListener;
+
+import javax.usb.*;
+
+/**
+ * Interface for receiving status changes from a {@link javax.usb.util.UsbStatusPoller UsbStatusPoller}.
+ * <p>
+ * The recipient and target identify what was polled, as in
+ * {@link javax.usb.util.StandardRequest#getStatus(UsbDevice,byte,short) getStatus}.
+ * No event Object is created.
+ * These are called on the Thread that completed the GET_STATUS request, and so should not block.
+ * @author Dan Streetman
+ */
+public interface UsbStatusListener extends EventListener
+{
+	/**
+	 * A status word changed.
+	 * <p>
+	 * This is not called for the first status polled, which has nothing to differ from.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target.
+	 * @param oldStatus The previous status.
+	 * @param newStatus The new status.
+	 */
+	public void usbStatusChanged( UsbDevice usbDevice, byte recipient, short target, short oldStatus, short newStatus );
+
+	/**
+	 * Polling a status failed.
+	 * <p>
+	 * This is called only for the first failure; it is not called again until a poll has succeeded.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target.
+	 * @param usbException The UsbException.
+	 */
+	public void usbStatusFailed( UsbDevice usbDevice, byte recipient, short target, UsbException usbException );
+}
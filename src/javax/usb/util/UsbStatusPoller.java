@@ -0,0 +1,547 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.usb.*;
+import javax.usb.event.*;
+
+/**
+ * A periodic poller of GET_STATUS for many devices and endpoints.
+ * <p>
+ * All polling is scheduled on one Thread, which only submits the
+ * {@link javax.usb.util.StandardRequest#futureGetStatus(UsbDevice,byte,short) GET_STATUS requests};
+ * it never waits for them, so one Thread serves any number of devices.
+ * Each poll's phase is randomly jittered within the period, so polls are spread evenly
+ * over the period instead of all being made at once.
+ * The number of polls outstanding at once behind each {@link javax.usb.UsbHub UsbHub} is limited;
+ * polls over the limit wait for an earlier poll behind the same UsbHub to complete.
+ * A poll is skipped if the previous poll of the same status has not completed.
+ * A poll that does not complete within the period is reported as failed; as its GET_STATUS request
+ * cannot be aborted, it still counts against its UsbHub's limit, and the status is not polled again,
+ * until the request completes.
+ * <p>
+ * {@link javax.usb.util.UsbStatusListener UsbStatusListeners} are only notified
+ * when a status word differs from the previous one (e.g. when an endpoint halts),
+ * or when polling a status first fails.
+ * All polls of a UsbDevice are removed when it is detached.
+ * @author Dan Streetman
+ */
+public class UsbStatusPoller
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * This uses a period of {@link #DEFAULT_PERIOD DEFAULT_PERIOD}
+	 * and allows {@link #DEFAULT_POLLS_PER_HUB DEFAULT_POLLS_PER_HUB} polls per hub.
+	 */
+	public UsbStatusPoller() { this(DEFAULT_PERIOD, DEFAULT_POLLS_PER_HUB); }
+
+	/**
+	 * Constructor.
+	 * @param period The number of milliseconds between polls of each status.
+	 * @param pollsPerHub The maximum number of polls outstanding at once behind each UsbHub.
+	 * @exception IllegalArgumentException If the period or polls per hub is not positive.
+	 */
+	public UsbStatusPoller(long period, int pollsPerHub) throws IllegalArgumentException
+	{
+		if (0 >= period || 0 >= pollsPerHub)
+			throw new IllegalArgumentException("Period and polls per hub must be positive.");
+
+		this.period = period;
+		this.pollsPerHub = pollsPerHub;
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "UsbStatusPoller");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+	}
+
+	/**
+	 * Get the period.
+	 * @return The number of milliseconds between polls of each status.
+	 */
+	public long getPeriod() { return period; }
+
+	/**
+	 * Get the polls per hub.
+	 * @return The maximum number of polls outstanding at once behind each UsbHub.
+	 */
+	public int getPollsPerHub() { return pollsPerHub; }
+
+	/**
+	 * Poll the status of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @exception IllegalStateException If this is shut down.
+	 */
+	public void addUsbDevice(UsbDevice usbDevice) throws IllegalStateException
+	{ add(usbDevice, UsbConst.REQUESTTYPE_RECIPIENT_DEVICE, (short)0); }
+
+	/**
+	 * Poll the status of an endpoint.
+	 * @param usbDevice The UsbDevice.
+	 * @param endpointAddress The endpoint address.
+	 * @exception IllegalStateException If this is shut down.
+	 */
+	public void addUsbEndpoint(UsbDevice usbDevice, byte endpointAddress) throws IllegalStateException
+	{ add(usbDevice, UsbConst.REQUESTTYPE_RECIPIENT_ENDPOINT, UsbUtil.unsignedShort(endpointAddress)); }
+
+	/**
+	 * Poll a status.
+	 * <p>
+	 * If the status is already being polled, this does nothing.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target.
+	 * @exception IllegalArgumentException If the recipient is not valid.
+	 * @exception IllegalStateException If this is shut down.
+	 */
+	public void add(UsbDevice usbDevice, byte recipient, short target) throws IllegalArgumentException,IllegalStateException
+	{
+		StandardRequest.checkRecipient(recipient);
+
+		if (scheduler.isShutdown())
+			throw new IllegalStateException("UsbStatusPoller is shut down.");
+
+		Poll poll = new Poll(usbDevice, recipient, target);
+
+		if (null != polls.putIfAbsent(poll, poll))
+			return;
+
+		if (null == devices.putIfAbsent(usbDevice, usbDevice))
+			usbDevice.addUsbDeviceListener(detachListener);
+
+		long phase = ThreadLocalRandom.current().nextLong(period);
+
+		try {
+			poll.setTask(scheduler.scheduleAtFixedRate(poll, phase, period, TimeUnit.MILLISECONDS));
+		} catch ( RejectedExecutionException reE ) {
+			removeAll(usbDevice);
+			throw new IllegalStateException("UsbStatusPoller is shut down.");
+		}
+	}
+
+	/**
+	 * Stop polling a status.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target.
+	 */
+	public void remove(UsbDevice usbDevice, byte recipient, short target)
+	{
+		Poll poll = polls.remove(new Poll(usbDevice, recipient, target));
+
+		if (null != poll) {
+			poll.cancel();
+			pruneHub(getHubKey(usbDevice));
+		}
+	}
+
+	/**
+	 * Stop polling all statuses of a UsbDevice.
+	 * <p>
+	 * This is called when the UsbDevice is detached.
+	 * If the UsbDevice is a UsbHub, its poll limit is also forgotten.
+	 * @param usbDevice The UsbDevice.
+	 */
+	public void removeAll(UsbDevice usbDevice)
+	{
+		if (null != devices.remove(usbDevice))
+			usbDevice.removeUsbDeviceListener(detachListener);
+
+		Iterator<Poll> iterator = polls.values().iterator();
+		while (iterator.hasNext()) {
+			Poll poll = iterator.next();
+			if (poll.usbDevice == usbDevice) {
+				iterator.remove();
+				poll.cancel();
+			}
+		}
+
+		hubs.remove(usbDevice);
+		pruneHub(getHubKey(usbDevice));
+	}
+
+	/**
+	 * Get the last polled status.
+	 * @param usbDevice The UsbDevice.
+	 * @param recipient The recipient.
+	 * @param target The target.
+	 * @return The last status, as an unsigned short, or -1 if the status is not polled or has not been polled yet.
+	 */
+	public int getStatus(UsbDevice usbDevice, byte recipient, short target)
+	{
+		Poll poll = polls.get(new Poll(usbDevice, recipient, target));
+
+		return null == poll ? -1 : poll.status;
+	}
+
+	/**
+	 * Add a UsbStatusListener.
+	 * @param listener The UsbStatusListener.
+	 */
+	public void addUsbStatusListener(UsbStatusListener listener) { listeners.add(listener); }
+
+	/**
+	 * Remove a UsbStatusListener.
+	 * @param listener The UsbStatusListener.
+	 */
+	public void removeUsbStatusListener(UsbStatusListener listener) { listeners.remove(listener); }
+
+	/**
+	 * Stop all polling, and the scheduler Thread.
+	 * <p>
+	 * Outstanding polls are not aborted, but their results are ignored.
+	 */
+	public void shutdown()
+	{
+		scheduler.shutdownNow();
+
+		Iterator<UsbDevice> devicesIterator = devices.keySet().iterator();
+		while (devicesIterator.hasNext())
+			devicesIterator.next().removeUsbDeviceListener(detachListener);
+
+		Iterator<Poll> pollsIterator = polls.values().iterator();
+		while (pollsIterator.hasNext())
+			pollsIterator.next().cancel();
+
+		devices.clear();
+		polls.clear();
+		hubs.clear();
+	}
+
+	/**
+	 * Get the Hub that limits polls of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @return The Hub.
+	 */
+	protected Hub getHub(UsbDevice usbDevice)
+	{
+		Object key = getHubKey(usbDevice);
+
+		Hub hub = hubs.get(key);
+
+		if (null == hub) {
+			hub = new Hub();
+			Hub existing = hubs.putIfAbsent(key, hub);
+			if (null != existing)
+				hub = existing;
+		}
+
+		return hub;
+	}
+
+	/**
+	 * Get the key of the Hub that limits polls of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @return The parent UsbHub, or the UsbDevice itself if it has no parent.
+	 */
+	protected Object getHubKey(UsbDevice usbDevice)
+	{
+		UsbPort usbPort = usbDevice.getParentUsbPort();
+
+		return null == usbPort ? (Object)usbDevice : (Object)usbPort.getUsbHub();
+	}
+
+	/**
+	 * Forget a Hub if no Poll uses it.
+	 * @param key The key of the Hub.
+	 */
+	protected void pruneHub(Object key)
+	{
+		Iterator<Poll> iterator = polls.values().iterator();
+		while (iterator.hasNext())
+			if (key == getHubKey(iterator.next().usbDevice))
+				return;
+
+		hubs.remove(key);
+	}
+
+	/**
+	 * Notify listeners of a changed status.
+	 * @param poll The Poll.
+	 * @param oldStatus The previous status.
+	 * @param newStatus The new status.
+	 */
+	protected void fireStatusChanged(Poll poll, short oldStatus, short newStatus)
+	{
+		Iterator<UsbStatusListener> iterator = listeners.iterator();
+		while (iterator.hasNext())
+			iterator.next().usbStatusChanged(poll.usbDevice, poll.recipient, poll.target, oldStatus, newStatus);
+	}
+
+	/**
+	 * Notify listeners of a failed poll.
+	 * @param poll The Poll.
+	 * @param usbException The UsbException.
+	 */
+	protected void fireStatusFailed(Poll poll, UsbException usbException)
+	{
+		Iterator<UsbStatusListener> iterator = listeners.iterator();
+		while (iterator.hasNext())
+			iterator.next().usbStatusFailed(poll.usbDevice, poll.recipient, poll.target, usbException);
+	}
+
+	/** The default period, in milliseconds. */
+	public static final long DEFAULT_PERIOD = 1000;
+
+	/** The default number of polls outstanding at once behind each UsbHub. */
+	public static final int DEFAULT_POLLS_PER_HUB = 1;
+
+	protected long period = 0;
+	protected int pollsPerHub = 0;
+	protected ScheduledExecutorService scheduler = null;
+
+	private ConcurrentHashMap<Poll,Poll> polls = new ConcurrentHashMap<Poll,Poll>();
+	private ConcurrentHashMap<UsbDevice,UsbDevice> devices = new ConcurrentHashMap<UsbDevice,UsbDevice>();
+	private ConcurrentHashMap<Object,Hub> hubs = new ConcurrentHashMap<Object,Hub>();
+	private List<UsbStatusListener> listeners = new CopyOnWriteArrayList<UsbStatusListener>();
+
+	private UsbDeviceListener detachListener = new UsbDeviceListener() {
+			public void usbDeviceDetached( UsbDeviceEvent event ) { removeAll(event.getUsbDevice()); }
+			public void errorEventOccurred( UsbDeviceErrorEvent event ) { }
+			public void dataEventOccurred( UsbDeviceDataEvent event ) { }
+		};
+
+	/**
+	 * The polls behind one UsbHub.
+	 * <p>
+	 * Polls over the limit wait in a queue, and are started as earlier polls complete.
+	 */
+	protected class Hub
+	{
+		/**
+		 * Start a Poll, or queue it until a permit is available.
+		 * @param poll The Poll.
+		 */
+		public void submit(Poll poll)
+		{
+			waiting.offer(poll);
+			drain();
+		}
+
+		/**
+		 * A Poll completed.
+		 */
+		public void completed()
+		{
+			permits.release();
+			drain();
+		}
+
+		/**
+		 * Start waiting Polls while permits are available.
+		 */
+		private void drain()
+		{
+			while (!waiting.isEmpty() && permits.tryAcquire()) {
+				Poll poll = waiting.poll();
+
+				if (null == poll)
+					permits.release();
+				else
+					poll.start();
+			}
+		}
+
+		private Semaphore permits = new Semaphore(pollsPerHub);
+		private ConcurrentLinkedQueue<Poll> waiting = new ConcurrentLinkedQueue<Poll>();
+	}
+
+	/**
+	 * The polling of one status.
+	 */
+	protected class Poll implements Runnable, BiConsumer<Short,Throwable>
+	{
+		public Poll(UsbDevice usbDevice, byte recipient, short target)
+		{
+			this.usbDevice = usbDevice;
+			this.recipient = recipient;
+			this.target = target;
+		}
+
+		/**
+		 * Submit this to its Hub, unless the previous poll is outstanding.
+		 */
+		public void run()
+		{
+			if (cancelled) {
+				cancelTask();
+				return;
+			}
+
+			if (!inFlight.compareAndSet(false, true))
+				return;
+
+			if (null == hub)
+				hub = getHub(usbDevice);
+
+			hub.submit(this);
+		}
+
+		/**
+		 * Submit the GET_STATUS request.
+		 * <p>
+		 * If it does not complete within the period, the failure is reported,
+		 * but this is not complete until the request completes.
+		 */
+		public void start()
+		{
+			if (cancelled) {
+				accept(null, null);
+				return;
+			}
+
+			try {
+				CompletableFuture<Short> getStatus = StandardRequest.futureGetStatus(usbDevice, recipient, target).toCompletableFuture();
+				getStatus.whenComplete(this);
+				getStatus.copy().orTimeout(period, TimeUnit.MILLISECONDS).exceptionally(timeoutHandler);
+			} catch ( UsbException uE ) {
+				accept(null, uE);
+			} catch ( RuntimeException rE ) {
+				accept(null, rE);
+			}
+		}
+
+		/**
+		 * The GET_STATUS request completed.
+		 * @param result The status, or null if the request failed.
+		 * @param t The failure, or null if the request succeeded.
+		 */
+		public void accept(Short result, Throwable t)
+		{
+			try {
+				if (!cancelled && null != result)
+					succeeded(result.shortValue());
+				else if (!cancelled && null != t)
+					failed(t);
+			} finally {
+				inFlight.set(false);
+				hub.completed();
+			}
+		}
+
+		/**
+		 * Stop polling.
+		 */
+		public void cancel()
+		{
+			cancelled = true;
+			cancelTask();
+		}
+
+		/**
+		 * Set the scheduled task.
+		 * <p>
+		 * If this was cancelled before the task was set, the task is cancelled.
+		 * @param task The scheduled task.
+		 */
+		public void setTask(ScheduledFuture<?> task)
+		{
+			this.task = task;
+
+			if (cancelled)
+				cancelTask();
+		}
+
+		/** Cancel the scheduled task, if it has been set. */
+		private void cancelTask()
+		{
+			ScheduledFuture<?> scheduled = task;
+
+			if (null != scheduled)
+				scheduled.cancel(false);
+		}
+
+		public int hashCode() { return usbDevice.hashCode() * 31 + (recipient * 65536) + target; }
+
+		public boolean equals(Object object)
+		{
+			if (!(object instanceof Poll))
+				return false;
+
+			Poll poll = (Poll)object;
+			return usbDevice == poll.usbDevice && recipient == poll.recipient && target == poll.target;
+		}
+
+		/**
+		 * Record a polled status, and notify listeners if it changed.
+		 * @param newStatus The status.
+		 */
+		private synchronized void succeeded(short newStatus)
+		{
+			int oldStatus = status;
+
+			status = UsbUtil.unsignedInt(newStatus);
+			failed = false;
+
+			if (-1 != oldStatus && oldStatus != status)
+				fireStatusChanged(this, (short)oldStatus, newStatus);
+		}
+
+		/**
+		 * Notify listeners of the first failure.
+		 * @param t The failure.
+		 */
+		private synchronized void failed(Throwable t)
+		{
+			if (failed)
+				return;
+
+			failed = true;
+
+			if (t instanceof CompletionException && null != t.getCause())
+				t = t.getCause();
+
+			UsbException usbException = null;
+
+			if (t instanceof UsbException) {
+				usbException = (UsbException)t;
+			} else if (t instanceof TimeoutException) {
+				usbException = new UsbException("GET_STATUS did not complete within " + period + " ms.");
+				usbException.initCause(t);
+			} else {
+				usbException = new UsbException(t.toString());
+				usbException.initCause(t);
+			}
+
+			fireStatusFailed(this, usbException);
+		}
+
+		public UsbDevice usbDevice = null;
+		public byte recipient = 0;
+		public short target = 0;
+		public volatile int status = -1;
+
+		private Hub hub = null;
+		private volatile ScheduledFuture<?> task = null;
+		private AtomicBoolean inFlight = new AtomicBoolean(false);
+		private volatile boolean cancelled = false;
+		private boolean failed = false;
+
+		private Function<Throwable,Short> timeoutHandler = new Function<Throwable,Short>() {
+				public Short apply(Throwable t)
+				{
+					if (t instanceof TimeoutException && !cancelled)
+						failed(t);
+					return null;
+				}
+			};
+	}
+}
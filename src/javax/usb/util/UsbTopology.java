@@ -0,0 +1,318 @@
+package javax.usb.util;
+
+/**
+ * Copyright (c) 2026, International Business Machines Corporation.
+ * All Rights Reserved.
+ *
+ * This software is provided and licensed under the terms and conditions
+ * of the Common Public License:
+ * http://oss.software.ibm.com/developerworks/opensource/license-cpl.html
+ */
+
+import java.io.UnsupportedEncodingException;
+import java.util.*;
+
+import javax.usb.*;
+
+/**
+ * An immutable, indexed snapshot of the UsbDevice topology.
+ * <p>
+ * The topology is walked once, when this is created, and every UsbDevice is indexed by
+ * vendor and product id, serial number, device class, interface class, and port path;
+ * each lookup is then a single hash lookup, instead of a walk of the topology.
+ * <p>
+ * The port path of a UsbDevice is the {@link javax.usb.UsbPort#getPortNumber() port numbers}
+ * from the root UsbHub down to the UsbDevice; since each bus is attached to a port of the
+ * virtual root UsbHub, the first port number identifies the bus.  The root UsbHub's port path is empty.
+ * <p>
+ * The interface classes of a UsbDevice are those of every setting of every interface of every configuration.
+ * Serial numbers are read (which makes a control transfer) only if requested;
+ * UsbDevices whose serial number can't be read are not indexed by serial number.
+ * <p>
+ * This does not change when UsbDevices are attached or detached; create a new snapshot instead.
+ * All returned Lists are unmodifiable, and lookups may be made concurrently from any Threads
+ * without synchronization.
+ * @author Dan Streetman
+ */
+public class UsbTopology
+{
+	/**
+	 * Constructor.
+	 * <p>
+	 * Serial numbers are not read.
+	 * @param rootUsbHub The root UsbHub.
+	 */
+	public UsbTopology(UsbHub rootUsbHub) { this(rootUsbHub, false); }
+
+	/**
+	 * Constructor.
+	 * @param rootUsbHub The root UsbHub.
+	 * @param serialNumbers If serial numbers should be read and indexed.
+	 */
+	public UsbTopology(UsbHub rootUsbHub, boolean serialNumbers)
+	{
+		Indexer indexer = new Indexer(serialNumbers);
+
+		List<Object> stack = new ArrayList<Object>();
+		stack.add(rootUsbHub);
+		stack.add(new byte[0]);
+
+		while (!stack.isEmpty()) {
+			byte[] path = (byte[])stack.remove(stack.size() - 1);
+			UsbDevice usbDevice = (UsbDevice)stack.remove(stack.size() - 1);
+
+			indexer.index(usbDevice, path);
+
+			if (!usbDevice.isUsbHub())
+				continue;
+
+			List ports = ((UsbHub)usbDevice).getUsbPorts();
+			for (int i=ports.size()-1; i>=0; i--) {
+				UsbPort usbPort = (UsbPort)ports.get(i);
+				UsbDevice child = usbPort.getUsbDevice();
+
+				if (!usbPort.isUsbDeviceAttached() || null == child)
+					continue;
+
+				byte[] childPath = new byte[path.length + 1];
+				System.arraycopy(path, 0, childPath, 0, path.length);
+				childPath[path.length] = usbPort.getPortNumber();
+
+				stack.add(child);
+				stack.add(childPath);
+			}
+		}
+
+		this.rootUsbHub = rootUsbHub;
+		this.usbDevices = Collections.unmodifiableList(indexer.usbDevices);
+		this.byVendorProduct = freeze(indexer.byVendorProduct);
+		this.bySerialNumber = freeze(indexer.bySerialNumber);
+		this.byDeviceClass = freeze(indexer.byDeviceClass);
+		this.byInterfaceClass = freeze(indexer.byInterfaceClass);
+		this.byPortPath = indexer.byPortPath;
+		this.portPaths = indexer.portPaths;
+		this.serialNumbers = indexer.serialNumbers;
+	}
+
+	/**
+	 * Create a snapshot of the current topology.
+	 * <p>
+	 * Serial numbers are not read.
+	 * @return A UsbTopology of the {@link javax.usb.UsbServices#getRootUsbHub() root UsbHub}.
+	 * @exception UsbException If the root UsbHub could not be gotten.
+	 * @exception SecurityException If the current client is not configured to access javax.usb.
+	 */
+	public static UsbTopology snapshot() throws UsbException,SecurityException
+	{ return new UsbTopology(UsbHostManager.getUsbServices().getRootUsbHub()); }
+
+	/**
+	 * Get the root UsbHub.
+	 * @return The root UsbHub.
+	 */
+	public UsbHub getRootUsbHub() { return rootUsbHub; }
+
+	/**
+	 * Get all UsbDevices.
+	 * @return All UsbDevices, depth-first in port order, starting with the root UsbHub.
+	 */
+	public List<UsbDevice> getUsbDevices() { return usbDevices; }
+
+	/**
+	 * Get the UsbDevices with a vendor and product id.
+	 * @param idVendor The vendor id.
+	 * @param idProduct The product id.
+	 * @return The UsbDevices, which may be empty.
+	 */
+	public List<UsbDevice> getUsbDevices(short idVendor, short idProduct)
+	{ return get(byVendorProduct, Integer.valueOf(UsbUtil.toInt(idVendor, idProduct))); }
+
+	/**
+	 * Get the UsbDevices with a serial number.
+	 * <p>
+	 * This is always empty if serial numbers were not read.
+	 * @param serialNumber The serial number.
+	 * @return The UsbDevices, which may be empty.
+	 */
+	public List<UsbDevice> getUsbDevicesBySerialNumber(String serialNumber) { return get(bySerialNumber, serialNumber); }
+
+	/**
+	 * Get the UsbDevices with a device class.
+	 * @param bDeviceClass The device class.
+	 * @return The UsbDevices, which may be empty.
+	 */
+	public List<UsbDevice> getUsbDevicesByDeviceClass(byte bDeviceClass) { return get(byDeviceClass, Byte.valueOf(bDeviceClass)); }
+
+	/**
+	 * Get the UsbDevices with an interface class.
+	 * @param bInterfaceClass The interface class.
+	 * @return The UsbDevices, which may be empty.
+	 */
+	public List<UsbDevice> getUsbDevicesByInterfaceClass(byte bInterfaceClass) { return get(byInterfaceClass, Byte.valueOf(bInterfaceClass)); }
+
+	/**
+	 * Get the UsbDevice at a port path.
+	 * @param portPath The port numbers from the root UsbHub.
+	 * @return The UsbDevice, or null if there is no UsbDevice at the port path.
+	 */
+	public UsbDevice getUsbDevice(byte[] portPath) { return byPortPath.get(pathKey(portPath)); }
+
+	/**
+	 * Get the port path of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @return A copy of the port numbers from the root UsbHub, or null if the UsbDevice is not in this snapshot.
+	 */
+	public byte[] getPortPath(UsbDevice usbDevice)
+	{
+		byte[] path = portPaths.get(usbDevice);
+
+		return null == path ? null : (byte[])path.clone();
+	}
+
+	/**
+	 * Get the serial number of a UsbDevice.
+	 * @param usbDevice The UsbDevice.
+	 * @return The serial number, or null if it was not read or the UsbDevice is not in this snapshot.
+	 */
+	public String getSerialNumber(UsbDevice usbDevice) { return serialNumbers.get(usbDevice); }
+
+	/**
+	 * Get the port path key.
+	 * @param path The port path.
+	 * @return The key.
+	 */
+	private static String pathKey(byte[] path)
+	{
+		char[] key = new char[path.length];
+
+		for (int i=0; i<path.length; i++)
+			key[i] = (char)UsbUtil.unsignedShort(path[i]);
+
+		return new String(key);
+	}
+
+	/**
+	 * Make all Lists in an index unmodifiable.
+	 * @param index The index.
+	 * @return The index.
+	 */
+	private static <K> Map<K,List<UsbDevice>> freeze(Map<K,List<UsbDevice>> index)
+	{
+		Iterator<Map.Entry<K,List<UsbDevice>>> iterator = index.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<K,List<UsbDevice>> entry = iterator.next();
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+
+		return index;
+	}
+
+	/**
+	 * Get a List from an index.
+	 * @param index The index.
+	 * @param key The key.
+	 * @return The List, or an empty List.
+	 */
+	private static <K> List<UsbDevice> get(Map<K,List<UsbDevice>> index, K key)
+	{
+		List<UsbDevice> list = index.get(key);
+
+		return null == list ? Collections.<UsbDevice>emptyList() : list;
+	}
+
+	private final UsbHub rootUsbHub;
+	private final List<UsbDevice> usbDevices;
+	private final Map<Integer,List<UsbDevice>> byVendorProduct;
+	private final Map<String,List<UsbDevice>> bySerialNumber;
+	private final Map<Byte,List<UsbDevice>> byDeviceClass;
+	private final Map<Byte,List<UsbDevice>> byInterfaceClass;
+	private final Map<String,UsbDevice> byPortPath;
+	private final Map<UsbDevice,byte[]> portPaths;
+	private final Map<UsbDevice,String> serialNumbers;
+
+	/**
+	 * Builds the indexes while the topology is walked.
+	 */
+	private static class Indexer
+	{
+		/**
+		 * Constructor.
+		 * @param readSerialNumbers If serial numbers should be read.
+		 */
+		public Indexer(boolean readSerialNumbers) { this.readSerialNumbers = readSerialNumbers; }
+
+		/**
+		 * Add a UsbDevice to the indexes.
+		 * @param usbDevice The UsbDevice.
+		 * @param path The port path.
+		 */
+		public void index(UsbDevice usbDevice, byte[] path)
+		{
+			usbDevices.add(usbDevice);
+			byPortPath.put(pathKey(path), usbDevice);
+			portPaths.put(usbDevice, path);
+
+			UsbDeviceDescriptor descriptor = usbDevice.getUsbDeviceDescriptor();
+
+			add(byVendorProduct, Integer.valueOf(UsbUtil.toInt(descriptor.idVendor(), descriptor.idProduct())), usbDevice);
+			add(byDeviceClass, Byte.valueOf(descriptor.bDeviceClass()), usbDevice);
+
+			Set<Byte> interfaceClasses = new HashSet<Byte>();
+			List configurations = usbDevice.getUsbConfigurations();
+			for (int i=0; i<configurations.size(); i++) {
+				List interfaces = ((UsbConfiguration)configurations.get(i)).getUsbInterfaces();
+				for (int j=0; j<interfaces.size(); j++) {
+					List settings = ((UsbInterface)interfaces.get(j)).getSettings();
+					for (int k=0; k<settings.size(); k++) {
+						Byte bInterfaceClass = Byte.valueOf(((UsbInterface)settings.get(k)).getUsbInterfaceDescriptor().bInterfaceClass());
+						if (interfaceClasses.add(bInterfaceClass))
+							add(byInterfaceClass, bInterfaceClass, usbDevice);
+					}
+				}
+			}
+
+			if (readSerialNumbers && 0 != descriptor.iSerialNumber()) {
+				try {
+					String serialNumber = usbDevice.getSerialNumberString();
+					if (null != serialNumber) {
+						serialNumbers.put(usbDevice, serialNumber);
+						add(bySerialNumber, serialNumber, usbDevice);
+					}
+				} catch ( UsbException uE ) {
+					/* not indexed */
+				} catch ( UnsupportedEncodingException ueE ) {
+					/* not indexed */
+				} catch ( UsbDisconnectedException udE ) {
+					/* not indexed */
+				}
+			}
+		}
+
+		/**
+		 * Add a UsbDevice to an index.
+		 * @param index The index.
+		 * @param key The key.
+		 * @param usbDevice The UsbDevice.
+		 */
+		private static <K> void add(Map<K,List<UsbDevice>> index, K key, UsbDevice usbDevice)
+		{
+			List<UsbDevice> list = index.get(key);
+
+			if (null == list) {
+				list = new ArrayList<UsbDevice>(1);
+				index.put(key, list);
+			}
+
+			list.add(usbDevice);
+		}
+
+		private boolean readSerialNumbers = false;
+		private List<UsbDevice> usbDevices = new ArrayList<UsbDevice>();
+		private Map<Integer,List<UsbDevice>> byVendorProduct = new HashMap<Integer,List<UsbDevice>>();
+		private Map<String,List<UsbDevice>> bySerialNumber = new HashMap<String,List<UsbDevice>>();
+		private Map<Byte,List<UsbDevice>> byDeviceClass = new HashMap<Byte,List<UsbDevice>>();
+		private Map<Byte,List<UsbDevice>> byInterfaceClass = new HashMap<Byte,List<UsbDevice>>();
+		private Map<String,UsbDevice> byPortPath = new HashMap<String,UsbDevice>();
+		private Map<UsbDevice,byte[]> portPaths = new HashMap<UsbDevice,byte[]>();
+		private Map<UsbDevice,String> serialNumbers = new HashMap<UsbDevice,String>();
+	}
+}
@@ -10,7 +10,11 @@ package javax.usb.util;
  */
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 
 import javax.usb.*;
 import javax.usb.event.*;
@@ -486,6 +490,236 @@ public class UsbUtil
 		return "Invalid";
 	}
 
+	/**
+	 * Allocate a direct ByteBuffer aligned to the specified boundary.
+	 * <p>
+	 * The buffer's first byte will be at a memory address that is a multiple of the alignment,
+	 * e.g. a page, which some platforms require (or prefer) for DMA.
+	 * The buffer's capacity is exactly the specified capacity.
+	 * @param capacity The capacity.
+	 * @param alignment The alignment, which must be a power of 2.
+	 * @return An aligned direct ByteBuffer.
+	 * @exception IllegalArgumentException If the capacity is negative or the alignment is not a power of 2.
+	 */
+	public static ByteBuffer allocateAlignedBuffer(int capacity, int alignment) throws IllegalArgumentException
+	{
+		if (0 > capacity)
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		if (0 >= alignment || 0 != (alignment & (alignment - 1)))
+			throw new IllegalArgumentException("Alignment must be a power of 2.");
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(capacity + alignment - 1);
+		int start = (alignment - buffer.alignmentOffset(0, alignment)) % alignment;
+		buffer.position(start);
+		buffer.limit(start + capacity);
+		return buffer.slice();
+	}
+
+	/**
+	 * Synchronously submit a ByteBuffer to a UsbPipe.
+	 * <p>
+	 * This implements {@link javax.usb.UsbPipe#syncSubmit(ByteBuffer) syncSubmit(ByteBuffer)}
+	 * for any UsbPipe, by submitting a {@link javax.usb.util.DefaultUsbBufferIrp DefaultUsbBufferIrp}
+	 * to its {@link javax.usb.UsbPipe#syncSubmit(UsbIrp) syncSubmit(UsbIrp)}.
+	 * @param usbPipe The UsbPipe.
+	 * @param buffer The ByteBuffer.
+	 * @return The number of bytes actually transferred.
+	 * @exception UsbException If an error occurs.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public static int syncSubmit(UsbPipe usbPipe, ByteBuffer buffer) throws UsbException,IllegalArgumentException
+	{
+		DefaultUsbBufferIrp usbBufferIrp = new DefaultUsbBufferIrp(buffer);
+
+		usbPipe.syncSubmit(usbBufferIrp);
+
+		if (usbBufferIrp.isUsbException())
+			throw usbBufferIrp.getUsbException();
+
+		return usbBufferIrp.getActualLength();
+	}
+
+	/**
+	 * Asynchronously submit a ByteBuffer to a UsbPipe.
+	 * <p>
+	 * This implements {@link javax.usb.UsbPipe#asyncSubmit(ByteBuffer) asyncSubmit(ByteBuffer)}
+	 * for any UsbPipe, by submitting a {@link javax.usb.util.DefaultUsbBufferIrp DefaultUsbBufferIrp}
+	 * to its {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) asyncSubmit(UsbIrp)}.
+	 * @param usbPipe The UsbPipe.
+	 * @param buffer The ByteBuffer.
+	 * @return The UsbIrp representing the submission.
+	 * @exception UsbException If an error occurs.
+	 * @exception IllegalArgumentException If the buffer is null.
+	 */
+	public static UsbIrp asyncSubmit(UsbPipe usbPipe, ByteBuffer buffer) throws UsbException,IllegalArgumentException
+	{
+		DefaultUsbBufferIrp usbBufferIrp = new DefaultUsbBufferIrp(buffer);
+
+		usbPipe.asyncSubmit(usbBufferIrp);
+
+		return usbBufferIrp;
+	}
+
+	/**
+	 * Asynchronously submit a UsbIrp to a UsbPipe, returning a CompletionStage.
+	 * <p>
+	 * This implements {@link javax.usb.UsbPipe#futureSubmit(UsbIrp) futureSubmit}
+	 * for any UsbPipe, using only its {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) asyncSubmit}.
+	 * If the UsbIrp is a {@link javax.usb.util.DefaultUsbIrp DefaultUsbIrp}, it is submitted
+	 * directly and a {@link javax.usb.util.UsbIrpListener UsbIrpListener} completes the CompletionStage;
+	 * any existing UsbIrpListener is called first, and restored.
+	 * Otherwise the UsbIrp is wrapped in a {@link UsbUtil.FutureUsbIrp FutureUsbIrp}
+	 * (or {@link UsbUtil.FutureUsbControlIrp FutureUsbControlIrp}) which is submitted instead;
+	 * any {@link javax.usb.event.UsbPipeEvent#getUsbIrp() UsbPipeEvent UsbIrp} will be the wrapper.
+	 * @param usbPipe The UsbPipe.
+	 * @param usbIrp The UsbIrp.
+	 * @return A CompletionStage for the UsbIrp.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<UsbIrp> futureSubmit(UsbPipe usbPipe, UsbIrp usbIrp) throws UsbException
+	{
+		if (usbIrp instanceof DefaultUsbIrp) {
+			FutureUsbIrpListener listener = new FutureUsbIrpListener((DefaultUsbIrp)usbIrp);
+			try {
+				usbPipe.asyncSubmit(usbIrp);
+			} catch ( UsbException uE ) {
+				listener.restore();
+				throw uE;
+			} catch ( RuntimeException rE ) {
+				listener.restore();
+				throw rE;
+			}
+			return listener.getCompletableFuture();
+		}
+
+		FutureUsbIrp futureUsbIrp = null;
+
+		if (usbIrp instanceof UsbControlIrp)
+			futureUsbIrp = new FutureUsbControlIrp((UsbControlIrp)usbIrp);
+		else
+			futureUsbIrp = new FutureUsbIrp(usbIrp);
+
+		usbPipe.asyncSubmit(futureUsbIrp);
+
+		return futureUsbIrp.getCompletableFuture();
+	}
+
+	/**
+	 * Asynchronously submit a UsbControlIrp to a UsbDevice, returning a CompletionStage.
+	 * <p>
+	 * This implements {@link javax.usb.UsbDevice#futureSubmit(UsbControlIrp) futureSubmit}
+	 * for any UsbDevice, using only its {@link javax.usb.UsbDevice#asyncSubmit(UsbControlIrp) asyncSubmit}.
+	 * If the UsbControlIrp is a {@link javax.usb.util.DefaultUsbControlIrp DefaultUsbControlIrp},
+	 * it is submitted directly and a {@link javax.usb.util.UsbIrpListener UsbIrpListener} completes
+	 * the CompletionStage; any existing UsbIrpListener is called first, and restored.
+	 * Otherwise the UsbControlIrp is wrapped in a {@link UsbUtil.FutureUsbControlIrp FutureUsbControlIrp}
+	 * which is submitted instead; any {@link javax.usb.event.UsbDeviceDataEvent#getUsbControlIrp() event UsbControlIrp}
+	 * will be the wrapper.
+	 * @param usbDevice The UsbDevice.
+	 * @param usbControlIrp The UsbControlIrp.
+	 * @return A CompletionStage for the UsbControlIrp.
+	 * @exception UsbException If the submission fails.
+	 */
+	public static CompletionStage<UsbIrp> futureSubmit(UsbDevice usbDevice, UsbControlIrp usbControlIrp) throws UsbException
+	{
+		if (usbControlIrp instanceof DefaultUsbControlIrp) {
+			FutureUsbIrpListener listener = new FutureUsbIrpListener((DefaultUsbIrp)usbControlIrp);
+			try {
+				usbDevice.asyncSubmit(usbControlIrp);
+			} catch ( UsbException uE ) {
+				listener.restore();
+				throw uE;
+			} catch ( RuntimeException rE ) {
+				listener.restore();
+				throw rE;
+			}
+			return listener.getCompletableFuture();
+		}
+
+		FutureUsbControlIrp futureUsbControlIrp = new FutureUsbControlIrp(usbControlIrp);
+
+		usbDevice.asyncSubmit(futureUsbControlIrp);
+
+		return futureUsbControlIrp.getCompletableFuture();
+	}
+
+	/**
+	 * Fire events for a batch of completed UsbIrps.
+	 * <p>
+	 * This is for use by implementations, to deliver completions that were collected at once
+	 * (e.g. all UsbIrps reaped in one poll).  Events are delivered in completion order.
+	 * Each UsbIrp that failed is delivered as a
+	 * {@link javax.usb.event.UsbPipeErrorEvent UsbPipeErrorEvent} to every listener.
+	 * Each run of consecutive successful UsbIrps is delivered as one
+	 * {@link javax.usb.event.UsbPipeDataBatchEvent UsbPipeDataBatchEvent}
+	 * to each {@link javax.usb.event.UsbPipeBatchListener UsbPipeBatchListener},
+	 * and as one {@link javax.usb.event.UsbPipeDataEvent UsbPipeDataEvent} per UsbIrp to every other listener,
+	 * before the error event of the failed UsbIrp that ends the run.
+	 * Events are only created if there is a listener for them.
+	 * @param usbPipe The UsbPipe.
+	 * @param listeners The UsbPipeListeners.
+	 * @param usbIrps The completed UsbIrps, in completion order.
+	 * @param count The number of UsbIrps to use from the start of the array.
+	 */
+	public static void fireDataEvents(UsbPipe usbPipe, UsbPipeListener[] listeners, UsbIrp[] usbIrps, int count)
+	{
+		int batchListeners = 0;
+
+		for (int i=0; i<listeners.length; i++)
+			if (listeners[i] instanceof UsbPipeBatchListener)
+				batchListeners++;
+
+		int start = 0;
+
+		for (int i=0; i<count; i++) {
+			if (!usbIrps[i].isUsbException())
+				continue;
+
+			fireDataEvents(usbPipe, listeners, batchListeners, usbIrps, start, i);
+			start = i + 1;
+
+			UsbPipeErrorEvent errorEvent = new UsbPipeErrorEvent(usbPipe, usbIrps[i]);
+			for (int j=0; j<listeners.length; j++)
+				listeners[j].errorEventOccurred(errorEvent);
+		}
+
+		fireDataEvents(usbPipe, listeners, batchListeners, usbIrps, start, count);
+	}
+
+	/**
+	 * Fire data events for a run of successful UsbIrps.
+	 * @param usbPipe The UsbPipe.
+	 * @param listeners The UsbPipeListeners.
+	 * @param batchListeners The number of UsbPipeBatchListeners.
+	 * @param usbIrps The completed UsbIrps, in completion order.
+	 * @param start The index of the first UsbIrp in the run.
+	 * @param end The index after the last UsbIrp in the run.
+	 */
+	private static void fireDataEvents(UsbPipe usbPipe, UsbPipeListener[] listeners, int batchListeners, UsbIrp[] usbIrps, int start, int end)
+	{
+		if (start >= end)
+			return;
+
+		if (0 < batchListeners) {
+			UsbIrp[] batch = new UsbIrp[end - start];
+			System.arraycopy(usbIrps, start, batch, 0, batch.length);
+
+			UsbPipeDataBatchEvent batchEvent = new UsbPipeDataBatchEvent(usbPipe, batch);
+			for (int i=0; i<listeners.length; i++)
+				if (listeners[i] instanceof UsbPipeBatchListener)
+					((UsbPipeBatchListener)listeners[i]).dataBatchEventOccurred(batchEvent);
+		}
+
+		if (listeners.length > batchListeners) {
+			for (int i=start; i<end; i++) {
+				UsbPipeDataEvent dataEvent = new UsbPipeDataEvent(usbPipe, usbIrps[i]);
+				for (int j=0; j<listeners.length; j++)
+					if (!(listeners[j] instanceof UsbPipeBatchListener))
+						listeners[j].dataEventOccurred(dataEvent);
+			}
+		}
+	}
+
 	/**
 	 * Create a synchronized UsbDevice.
 	 * @param usbDevice The unsynchronized UsbDevice.
@@ -500,21 +734,58 @@ public class UsbUtil
 	 */
 	public static UsbPipe synchronizedUsbPipe(UsbPipe usbPipe) { return new UsbUtil.SynchronizedUsbPipe(usbPipe); }
 
+	/**
+	 * Create a locking UsbDevice.
+	 * <p>
+	 * This is synchronized like {@link #synchronizedUsbDevice(UsbDevice) synchronizedUsbDevice},
+	 * but with ReentrantLocks instead of monitors.
+	 * @param usbDevice The unsynchronized UsbDevice.
+	 * @return A locking UsbDevice.
+	 */
+	public static UsbDevice lockingUsbDevice(UsbDevice usbDevice) { return new UsbUtil.LockingUsbDevice(usbDevice); }
+
+	/**
+	 * Create a locking UsbPipe.
+	 * <p>
+	 * This is synchronized like {@link #synchronizedUsbPipe(UsbPipe) synchronizedUsbPipe},
+	 * but with ReentrantLocks instead of monitors.
+	 * @param usbPipe The unsynchronized UsbPipe.
+	 * @return A locking UsbPipe.
+	 */
+	public static UsbPipe lockingUsbPipe(UsbPipe usbPipe) { return new UsbUtil.LockingUsbPipe(usbPipe); }
+
+	/**
+	 * Create a concurrent UsbPipe.
+	 * @param usbPipe The UsbPipe.
+	 * @return A concurrent UsbPipe.
+	 */
+	public static UsbPipe concurrentUsbPipe(UsbPipe usbPipe) { return new UsbUtil.ConcurrentUsbPipe(usbPipe); }
+
 	/**
 	 * A synchronized UsbDevice wrapper implementation.
+	 * <p>
+	 * Control transfers are serialized by a fair lock, so they are made in the order they were requested,
+	 * and then synchronized on the submit lock, as before.
+	 * String and string descriptor accessors are not synchronized; they read a
+	 * {@link javax.usb.util.CachingUsbDevice CachingUsbDevice} wrapping this, so only the first fetch
+	 * of each String is a (serialized) control transfer, and later reads do not wait behind control traffic.
 	 */
 	public static class SynchronizedUsbDevice implements UsbDevice
 	{
-		public SynchronizedUsbDevice(UsbDevice usbDevice) { this.usbDevice = usbDevice; }
+		public SynchronizedUsbDevice(UsbDevice usbDevice)
+		{
+			this.usbDevice = usbDevice;
+			stringCache = new CachingUsbDevice(this);
+		}
 
 		public UsbPort getParentUsbPort() { return usbDevice.getParentUsbPort(); }
 		public boolean isUsbHub() { return usbDevice.isUsbHub(); }
 		public String getManufacturerString() throws UsbException,UnsupportedEncodingException
-		{ synchronized (submitLock) { return usbDevice.getManufacturerString(); } }
+		{ return stringCache.getManufacturerString(); }
 		public String getSerialNumberString() throws UsbException,UnsupportedEncodingException
-		{ synchronized (submitLock) { return usbDevice.getSerialNumberString(); } }
+		{ return stringCache.getSerialNumberString(); }
 		public String getProductString() throws UsbException,UnsupportedEncodingException
-		{ synchronized (submitLock) { return usbDevice.getProductString(); } }
+		{ return stringCache.getProductString(); }
 		public Object getSpeed() { return usbDevice.getSpeed(); }
 		public List getUsbConfigurations() { return usbDevice.getUsbConfigurations(); }
 		public UsbConfiguration getUsbConfiguration( byte number ) { return usbDevice.getUsbConfiguration(number); }
@@ -524,17 +795,19 @@ public class UsbUtil
 		public boolean isConfigured() { return usbDevice.isConfigured(); }
 		public UsbDeviceDescriptor getUsbDeviceDescriptor() { return usbDevice.getUsbDeviceDescriptor(); }
 		public UsbStringDescriptor getUsbStringDescriptor( byte index ) throws UsbException
-		{ synchronized (submitLock) { return usbDevice.getUsbStringDescriptor(index); } }
+		{ return stringCache.getUsbStringDescriptor(index); }
 		public String getString( byte index ) throws UsbException,UnsupportedEncodingException
-		{ synchronized (submitLock) { return usbDevice.getString(index); } }
+		{ return stringCache.getString(index); }
 		public void syncSubmit( UsbControlIrp irp ) throws UsbException
-		{ synchronized (submitLock) { usbDevice.syncSubmit(irp); } }
+		{ controlLock.lock(); try { synchronized (submitLock) { usbDevice.syncSubmit(irp); } } finally { controlLock.unlock(); } }
 		public void asyncSubmit( UsbControlIrp irp ) throws UsbException
-		{ synchronized (submitLock) { usbDevice.asyncSubmit(irp); } }
+		{ controlLock.lock(); try { synchronized (submitLock) { usbDevice.asyncSubmit(irp); } } finally { controlLock.unlock(); } }
+		public CompletionStage<UsbIrp> futureSubmit( UsbControlIrp irp ) throws UsbException
+		{ controlLock.lock(); try { synchronized (submitLock) { return usbDevice.futureSubmit(irp); } } finally { controlLock.unlock(); } }
 		public void syncSubmit( List list ) throws UsbException
-		{ synchronized (submitLock) { usbDevice.syncSubmit(list); } }
+		{ controlLock.lock(); try { synchronized (submitLock) { usbDevice.syncSubmit(list); } } finally { controlLock.unlock(); } }
 		public void asyncSubmit( List list ) throws UsbException
-		{ synchronized (submitLock) { usbDevice.asyncSubmit(list); } }
+		{ controlLock.lock(); try { synchronized (submitLock) { usbDevice.asyncSubmit(list); } } finally { controlLock.unlock(); } }
 		public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
 		{ return usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
 		public void addUsbDeviceListener( UsbDeviceListener listener )
@@ -545,6 +818,8 @@ public class UsbUtil
 		public UsbDevice usbDevice = null;
 		protected Object submitLock = new Object();
 		protected Object listenerLock = new Object();
+		protected ReentrantLock controlLock = new ReentrantLock(true);
+		protected CachingUsbDevice stringCache = null;
 	}
 
 	/**
@@ -569,10 +844,16 @@ public class UsbUtil
 		{ synchronized (submitLock) { return usbPipe.syncSubmit(data); } }
 		public UsbIrp asyncSubmit( byte[] data ) throws UsbException,UsbNotOpenException
 		{ synchronized (submitLock) { return usbPipe.asyncSubmit(data); } }
+		public int syncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ synchronized (submitLock) { return usbPipe.syncSubmit(data); } }
+		public UsbIrp asyncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ synchronized (submitLock) { return usbPipe.asyncSubmit(data); } }
 		public void syncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
 		{ synchronized (submitLock) { usbPipe.syncSubmit(irp); } }
 		public void asyncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
 		{ synchronized (submitLock) { usbPipe.asyncSubmit(irp); } }
+		public CompletionStage<UsbIrp> futureSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{ synchronized (submitLock) { return usbPipe.futureSubmit(irp); } }
 		public void syncSubmit( List list ) throws UsbException,UsbNotOpenException
 		{ synchronized (submitLock) { usbPipe.syncSubmit(list); } }
 		public void asyncSubmit( List list ) throws UsbException,UsbNotOpenException
@@ -593,4 +874,437 @@ public class UsbUtil
 		protected Object submitLock = new Object();
 	}
 
+	/**
+	 * A locking UsbDevice wrapper implementation.
+	 * <p>
+	 * This is synchronized like {@link UsbUtil.SynchronizedUsbDevice SynchronizedUsbDevice},
+	 * but serializes with ReentrantLocks instead of monitors, so a virtual Thread
+	 * blocked waiting for a lock or a submission unmounts from its carrier Thread.
+	 * <p>
+	 * Control transfers are serialized by a fair lock, so they are made in the order they were requested.
+	 * Unlike SynchronizedUsbDevice, Strings are not cached; wrap this in a {@link javax.usb.util.CachingUsbDevice CachingUsbDevice}
+	 * to read Strings without waiting behind control traffic.
+	 */
+	public static class LockingUsbDevice implements UsbDevice
+	{
+		public LockingUsbDevice(UsbDevice usbDevice) { this.usbDevice = usbDevice; }
+
+		public UsbPort getParentUsbPort() { return usbDevice.getParentUsbPort(); }
+		public boolean isUsbHub() { return usbDevice.isUsbHub(); }
+		public String getManufacturerString() throws UsbException,UnsupportedEncodingException
+		{ submitLock.lock(); try { return usbDevice.getManufacturerString(); } finally { submitLock.unlock(); } }
+		public String getSerialNumberString() throws UsbException,UnsupportedEncodingException
+		{ submitLock.lock(); try { return usbDevice.getSerialNumberString(); } finally { submitLock.unlock(); } }
+		public String getProductString() throws UsbException,UnsupportedEncodingException
+		{ submitLock.lock(); try { return usbDevice.getProductString(); } finally { submitLock.unlock(); } }
+		public Object getSpeed() { return usbDevice.getSpeed(); }
+		public List getUsbConfigurations() { return usbDevice.getUsbConfigurations(); }
+		public UsbConfiguration getUsbConfiguration( byte number ) { return usbDevice.getUsbConfiguration(number); }
+		public boolean containsUsbConfiguration( byte number ) { return usbDevice.containsUsbConfiguration(number); }
+		public byte getActiveUsbConfigurationNumber() { return usbDevice.getActiveUsbConfigurationNumber(); }
+		public UsbConfiguration getActiveUsbConfiguration() { return usbDevice.getActiveUsbConfiguration(); }
+		public boolean isConfigured() { return usbDevice.isConfigured(); }
+		public UsbDeviceDescriptor getUsbDeviceDescriptor() { return usbDevice.getUsbDeviceDescriptor(); }
+		public UsbStringDescriptor getUsbStringDescriptor( byte index ) throws UsbException
+		{ submitLock.lock(); try { return usbDevice.getUsbStringDescriptor(index); } finally { submitLock.unlock(); } }
+		public String getString( byte index ) throws UsbException,UnsupportedEncodingException
+		{ submitLock.lock(); try { return usbDevice.getString(index); } finally { submitLock.unlock(); } }
+		public void syncSubmit( UsbControlIrp irp ) throws UsbException
+		{ submitLock.lock(); try { usbDevice.syncSubmit(irp); } finally { submitLock.unlock(); } }
+		public void asyncSubmit( UsbControlIrp irp ) throws UsbException
+		{ submitLock.lock(); try { usbDevice.asyncSubmit(irp); } finally { submitLock.unlock(); } }
+		public CompletionStage<UsbIrp> futureSubmit( UsbControlIrp irp ) throws UsbException
+		{ submitLock.lock(); try { return usbDevice.futureSubmit(irp); } finally { submitLock.unlock(); } }
+		public void syncSubmit( List list ) throws UsbException
+		{ submitLock.lock(); try { usbDevice.syncSubmit(list); } finally { submitLock.unlock(); } }
+		public void asyncSubmit( List list ) throws UsbException
+		{ submitLock.lock(); try { usbDevice.asyncSubmit(list); } finally { submitLock.unlock(); } }
+		public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+		{ return usbDevice.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
+		public void addUsbDeviceListener( UsbDeviceListener listener )
+		{ listenerLock.lock(); try { usbDevice.addUsbDeviceListener(listener); } finally { listenerLock.unlock(); } }
+		public void removeUsbDeviceListener( UsbDeviceListener listener )
+		{ listenerLock.lock(); try { usbDevice.removeUsbDeviceListener(listener); } finally { listenerLock.unlock(); } }
+
+		public UsbDevice usbDevice = null;
+		protected ReentrantLock submitLock = new ReentrantLock(true);
+		protected ReentrantLock listenerLock = new ReentrantLock();
+	}
+
+	/**
+	 * A locking UsbPipe wrapper implementation.
+	 * <p>
+	 * This is synchronized like {@link UsbUtil.SynchronizedUsbPipe SynchronizedUsbPipe},
+	 * but serializes with ReentrantLocks instead of monitors, so a virtual Thread
+	 * blocked waiting for a lock or a submission unmounts from its carrier Thread.
+	 */
+	public static class LockingUsbPipe implements UsbPipe
+	{
+		public LockingUsbPipe(UsbPipe usbPipe) { this.usbPipe = usbPipe; }
+
+		public void open() throws UsbException,UsbNotActiveException,UsbNotClaimedException
+		{ openLock.lock(); try { usbPipe.open(); } finally { openLock.unlock(); } }
+		public void close() throws UsbException,UsbNotOpenException
+		{ openLock.lock(); try { usbPipe.close(); } finally { openLock.unlock(); } }
+		public boolean isActive() { return usbPipe.isActive(); }
+		public boolean isOpen() { return usbPipe.isOpen(); }
+		public UsbEndpoint getUsbEndpoint() { return usbPipe.getUsbEndpoint(); }
+		public int syncSubmit( byte[] data ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { return usbPipe.syncSubmit(data); } finally { submitLock.unlock(); } }
+		public UsbIrp asyncSubmit( byte[] data ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { return usbPipe.asyncSubmit(data); } finally { submitLock.unlock(); } }
+		public int syncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { return usbPipe.syncSubmit(data); } finally { submitLock.unlock(); } }
+		public UsbIrp asyncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { return usbPipe.asyncSubmit(data); } finally { submitLock.unlock(); } }
+		public void syncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { usbPipe.syncSubmit(irp); } finally { submitLock.unlock(); } }
+		public void asyncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { usbPipe.asyncSubmit(irp); } finally { submitLock.unlock(); } }
+		public CompletionStage<UsbIrp> futureSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { return usbPipe.futureSubmit(irp); } finally { submitLock.unlock(); } }
+		public void syncSubmit( List list ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { usbPipe.syncSubmit(list); } finally { submitLock.unlock(); } }
+		public void asyncSubmit( List list ) throws UsbException,UsbNotOpenException
+		{ submitLock.lock(); try { usbPipe.asyncSubmit(list); } finally { submitLock.unlock(); } }
+		public void abortAllSubmissions() throws UsbNotOpenException
+		{ submitLock.lock(); try { usbPipe.abortAllSubmissions(); } finally { submitLock.unlock(); } }
+		public UsbIrp createUsbIrp()
+		{ return usbPipe.createUsbIrp(); }
+		public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+		{ return usbPipe.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
+		public void addUsbPipeListener( UsbPipeListener listener )
+		{ usbPipe.addUsbPipeListener(listener); }
+		public void removeUsbPipeListener( UsbPipeListener listener )
+		{ usbPipe.removeUsbPipeListener(listener); }
+
+		public UsbPipe usbPipe = null;
+		protected ReentrantLock openLock = new ReentrantLock();
+		protected ReentrantLock submitLock = new ReentrantLock();
+	}
+
+	/**
+	 * A concurrent UsbPipe wrapper implementation.
+	 * <p>
+	 * Unlike {@link UsbUtil.SynchronizedUsbPipe SynchronizedUsbPipe}, submissions do not hold a lock
+	 * for the duration of a transfer.  Each submission is added to a lock-free queue, and whichever
+	 * Thread finds the queue idle drains it, handing all queued submissions to the wrapped UsbPipe's
+	 * {@link javax.usb.UsbPipe#asyncSubmit(UsbIrp) asyncSubmit} in queue order.
+	 * A List of UsbIrps is queued, and submitted, as one unit.
+	 * Synchronous submissions queue their UsbIrps and then wait for them without holding any lock,
+	 * so they do not block other Threads' submissions.
+	 * <p>
+	 * As the submission may be made by another Thread, an asynchronous submission that fails is not
+	 * thrown; instead its UsbIrp is completed with the UsbException.  Synchronous submissions throw
+	 * the UsbException as usual.  A UsbIrp that fails before reaching the wrapped UsbPipe is also reported
+	 * to the UsbPipeListeners added through this wrapper, as an error event whose source is the wrapped UsbPipe.
+	 * <p>
+	 * {@link #abortAllSubmissions() abortAllSubmissions} only waits for a UsbIrp that is being handed to
+	 * the wrapped UsbPipe; queued UsbIrps that have not been submitted are completed with a UsbAbortException,
+	 * and then the wrapped UsbPipe's submissions are aborted.  No UsbIrp queued before the abort is
+	 * submitted after it.
+	 * The open/close methods are synchronized to each other.
+	 */
+	public static class ConcurrentUsbPipe implements UsbPipe
+	{
+		public ConcurrentUsbPipe(UsbPipe usbPipe) { this.usbPipe = usbPipe; }
+
+		public void open() throws UsbException,UsbNotActiveException,UsbNotClaimedException
+		{ openLock.lock(); try { usbPipe.open(); } finally { openLock.unlock(); } }
+		public void close() throws UsbException,UsbNotOpenException
+		{ openLock.lock(); try { usbPipe.close(); } finally { openLock.unlock(); } }
+		public boolean isActive() { return usbPipe.isActive(); }
+		public boolean isOpen() { return usbPipe.isOpen(); }
+		public UsbEndpoint getUsbEndpoint() { return usbPipe.getUsbEndpoint(); }
+		public int syncSubmit( byte[] data ) throws UsbException,UsbNotOpenException
+		{
+			UsbIrp usbIrp = new DefaultUsbIrp(data);
+			syncSubmit(usbIrp);
+			return usbIrp.getActualLength();
+		}
+		public UsbIrp asyncSubmit( byte[] data ) throws UsbException,UsbNotOpenException
+		{
+			UsbIrp usbIrp = new DefaultUsbIrp(data);
+			asyncSubmit(usbIrp);
+			return usbIrp;
+		}
+		public int syncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ return UsbUtil.syncSubmit(this, data); }
+		public UsbIrp asyncSubmit( ByteBuffer data ) throws UsbException,UsbNotOpenException
+		{ return UsbUtil.asyncSubmit(this, data); }
+		public void syncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{
+			asyncSubmit(irp);
+			irp.waitUntilComplete();
+			if (irp.isUsbException())
+				throw irp.getUsbException();
+		}
+		public void asyncSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{
+			queue.offer(irp);
+			drain();
+		}
+		public CompletionStage<UsbIrp> futureSubmit( UsbIrp irp ) throws UsbException,UsbNotOpenException
+		{ return UsbUtil.futureSubmit(this, irp); }
+		public void syncSubmit( List list ) throws UsbException,UsbNotOpenException
+		{
+			asyncSubmit(list);
+			for (int i=0; i<list.size(); i++) {
+				UsbIrp usbIrp = (UsbIrp)list.get(i);
+				usbIrp.waitUntilComplete();
+				if (usbIrp.isUsbException())
+					throw usbIrp.getUsbException();
+			}
+		}
+		public void asyncSubmit( List list ) throws UsbException,UsbNotOpenException
+		{
+			List<?> usbIrps = list;
+			queue.offer(new ArrayList<Object>(usbIrps));
+			drain();
+		}
+		public void abortAllSubmissions() throws UsbNotOpenException
+		{
+			drainLock.lock();
+			try {
+				Object submission = null;
+				while (null != (submission = queue.poll()))
+					fail(submission, new UsbAbortException("Submission aborted."));
+				usbPipe.abortAllSubmissions();
+			} finally {
+				drainLock.unlock();
+			}
+		}
+		public UsbIrp createUsbIrp()
+		{ return usbPipe.createUsbIrp(); }
+		public UsbControlIrp createUsbControlIrp(byte bmRequestType, byte bRequest, short wValue, short wIndex)
+		{ return usbPipe.createUsbControlIrp(bmRequestType, bRequest, wValue, wIndex); }
+		public void addUsbPipeListener( UsbPipeListener listener )
+		{
+			listeners.add(listener);
+			usbPipe.addUsbPipeListener(listener);
+		}
+		public void removeUsbPipeListener( UsbPipeListener listener )
+		{
+			listeners.remove(listener);
+			usbPipe.removeUsbPipeListener(listener);
+		}
+
+		/**
+		 * Submit all queued submissions, unless another Thread is already doing so.
+		 * <p>
+		 * Each submission is polled and submitted under the drain lock, so an abort
+		 * cannot happen between the two.
+		 */
+		protected void drain()
+		{
+			if (0 != draining.getAndIncrement())
+				return;
+
+			int missed = 1;
+
+			while (true) {
+				while (submitNext())
+					;
+
+				missed = draining.addAndGet(-missed);
+				if (0 == missed)
+					break;
+			}
+		}
+
+		/**
+		 * Submit the next queued submission.
+		 * @return If there was a queued submission.
+		 */
+		protected boolean submitNext()
+		{
+			drainLock.lock();
+			try {
+				Object submission = queue.poll();
+
+				if (null == submission)
+					return false;
+
+				try {
+					if (submission instanceof List)
+						usbPipe.asyncSubmit((List)submission);
+					else
+						usbPipe.asyncSubmit((UsbIrp)submission);
+				} catch ( UsbException uE ) {
+					fail(submission, uE);
+				} catch ( RuntimeException rE ) {
+					UsbException uE = new UsbException("Submission failed : " + rE.getMessage());
+					uE.initCause(rE);
+					fail(submission, uE);
+				}
+
+				return true;
+			} finally {
+				drainLock.unlock();
+			}
+		}
+
+		/**
+		 * Complete a queued submission with a UsbException.
+		 * <p>
+		 * As the wrapped UsbPipe never saw the UsbIrps, an error event is fired for each
+		 * to the UsbPipeListeners added through this.  An exception thrown by a UsbIrpListener
+		 * or UsbPipeListener is ignored, so it cannot stop the drain.
+		 * @param submission The UsbIrp or List of UsbIrps.
+		 * @param uE The UsbException.
+		 */
+		protected void fail(Object submission, UsbException uE)
+		{
+			if (submission instanceof List) {
+				List list = (List)submission;
+				for (int i=0; i<list.size(); i++)
+					fail(list.get(i), uE);
+			} else {
+				UsbIrp usbIrp = (UsbIrp)submission;
+				if (usbIrp.isComplete())
+					return;
+				usbIrp.setUsbException(uE);
+
+				try {
+					usbIrp.complete();
+				} catch ( RuntimeException rE ) {
+					/* ignore */
+				}
+
+				UsbPipeErrorEvent errorEvent = new UsbPipeErrorEvent(usbPipe, usbIrp);
+				Iterator<UsbPipeListener> iterator = listeners.iterator();
+				while (iterator.hasNext()) {
+					try {
+						iterator.next().errorEventOccurred(errorEvent);
+					} catch ( RuntimeException rE ) {
+						/* ignore */
+					}
+				}
+			}
+		}
+
+		public UsbPipe usbPipe = null;
+		protected ReentrantLock openLock = new ReentrantLock();
+
+		private ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
+		private AtomicInteger draining = new AtomicInteger(0);
+		private ReentrantLock drainLock = new ReentrantLock();
+		private List<UsbPipeListener> listeners = new CopyOnWriteArrayList<UsbPipeListener>();
+	}
+
+	/**
+	 * A UsbIrp wrapper that completes a CompletableFuture.
+	 * <p>
+	 * All methods are delegated to the wrapped UsbIrp.  When this is
+	 * {@link #complete() completed}, the wrapped UsbIrp is completed, and then
+	 * the CompletableFuture is completed with the wrapped UsbIrp, or
+	 * completed exceptionally with its {@link javax.usb.UsbIrp#getUsbException() UsbException}.
+	 */
+	public static class FutureUsbIrp implements UsbIrp
+	{
+		public FutureUsbIrp(UsbIrp usbIrp) { this.usbIrp = usbIrp; }
+
+		public byte[] getData() { return usbIrp.getData(); }
+		public int getOffset() { return usbIrp.getOffset(); }
+		public int getLength() { return usbIrp.getLength(); }
+		public int getActualLength() { return usbIrp.getActualLength(); }
+		public void setData(byte[] data) { usbIrp.setData(data); }
+		public void setData(byte[] data, int offset, int length) { usbIrp.setData(data, offset, length); }
+		public void setOffset(int offset) { usbIrp.setOffset(offset); }
+		public void setLength(int length) { usbIrp.setLength(length); }
+		public void setActualLength(int length) { usbIrp.setActualLength(length); }
+		public boolean isUsbException() { return usbIrp.isUsbException(); }
+		public UsbException getUsbException() { return usbIrp.getUsbException(); }
+		public void setUsbException(UsbException usbException) { usbIrp.setUsbException(usbException); }
+		public boolean getAcceptShortPacket() { return usbIrp.getAcceptShortPacket(); }
+		public void setAcceptShortPacket(boolean accept) { usbIrp.setAcceptShortPacket(accept); }
+		public boolean isComplete() { return usbIrp.isComplete(); }
+		public void setComplete(boolean complete) { usbIrp.setComplete(complete); }
+		public void waitUntilComplete() { usbIrp.waitUntilComplete(); }
+		public void waitUntilComplete(long timeout) { usbIrp.waitUntilComplete(timeout); }
+
+		public void complete()
+		{
+			try {
+				usbIrp.complete();
+			} finally {
+				if (usbIrp.isUsbException())
+					completableFuture.completeExceptionally(usbIrp.getUsbException());
+				else
+					completableFuture.complete(usbIrp);
+			}
+		}
+
+		/**
+		 * Get the CompletableFuture.
+		 * @return The CompletableFuture.
+		 */
+		public CompletableFuture<UsbIrp> getCompletableFuture() { return completableFuture; }
+
+		/**
+		 * Get the wrapped UsbIrp.
+		 * @return The wrapped UsbIrp.
+		 */
+		public UsbIrp getUsbIrp() { return usbIrp; }
+
+		public UsbIrp usbIrp = null;
+		protected CompletableFuture<UsbIrp> completableFuture = new CompletableFuture<UsbIrp>();
+	}
+
+	/**
+	 * A UsbControlIrp wrapper that completes a CompletableFuture.
+	 * <p>
+	 * This is identical to {@link UsbUtil.FutureUsbIrp FutureUsbIrp}
+	 * but also delegates the setup packet methods.
+	 */
+	public static class FutureUsbControlIrp extends FutureUsbIrp implements UsbControlIrp
+	{
+		public FutureUsbControlIrp(UsbControlIrp usbControlIrp) { super(usbControlIrp); }
+
+		public byte bmRequestType() { return ((UsbControlIrp)usbIrp).bmRequestType(); }
+		public byte bRequest() { return ((UsbControlIrp)usbIrp).bRequest(); }
+		public short wValue() { return ((UsbControlIrp)usbIrp).wValue(); }
+		public short wIndex() { return ((UsbControlIrp)usbIrp).wIndex(); }
+	}
+
+	/**
+	 * A UsbIrpListener that completes a CompletableFuture.
+	 * <p>
+	 * This installs itself on the DefaultUsbIrp when created.  On completion,
+	 * it restores the previous UsbIrpListener, calls it (if any), and then
+	 * completes the CompletableFuture.
+	 */
+	private static class FutureUsbIrpListener implements UsbIrpListener
+	{
+		public FutureUsbIrpListener(DefaultUsbIrp defaultUsbIrp)
+		{
+			this.defaultUsbIrp = defaultUsbIrp;
+			previousListener = defaultUsbIrp.getUsbIrpListener();
+			defaultUsbIrp.setUsbIrpListener(this);
+		}
+
+		public void usbIrpCompleted( UsbIrp usbIrp )
+		{
+			restore();
+
+			try {
+				if (null != previousListener)
+					previousListener.usbIrpCompleted(usbIrp);
+			} finally {
+				if (usbIrp.isUsbException())
+					completableFuture.completeExceptionally(usbIrp.getUsbException());
+				else
+					completableFuture.complete(usbIrp);
+			}
+		}
+
+		public void restore() { defaultUsbIrp.setUsbIrpListener(previousListener); }
+
+		public CompletableFuture<UsbIrp> getCompletableFuture() { return completableFuture; }
+
+		private DefaultUsbIrp defaultUsbIrp = null;
+		private UsbIrpListener previousListener = null;
+		private CompletableFuture<UsbIrp> completableFuture = new CompletableFuture<UsbIrp>();
+	}
+
 }